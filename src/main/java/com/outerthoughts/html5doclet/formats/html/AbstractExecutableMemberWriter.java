@@ -269,7 +269,7 @@ public abstract class AbstractExecutableMemberWriter extends AbstractMemberWrite
     protected ClassDoc implementsMethodInIntfac(MethodDoc method,
                                                 ClassDoc[] intfacs) {
         for (int i = 0; i < intfacs.length; i++) {
-            MethodDoc[] methods = intfacs[i].methods();
+            MethodDoc[] methods = configuration.docIndex.methods(intfacs[i], true);
             if (methods.length > 0) {
                 for (int j = 0; j < methods.length; j++) {
                     if (methods[j].name().equals(method.name()) &&
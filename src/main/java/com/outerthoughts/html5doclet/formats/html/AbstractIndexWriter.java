@@ -82,27 +82,29 @@ public class AbstractIndexWriter extends HtmlDocletWriter {
     }
 
     /**
-     * Add the member information for the unicode character along with the
-     * list of the members.
+     * Write the member information for the unicode character along with the
+     * list of the members.  The description of each member is written as
+     * soon as it is complete, so the page never holds the whole list.
      *
-     * @param unicode Unicode for which member list information to be generated
+     * @param uc Unicode for which member list information to be generated
      * @param memberlist List of members for the unicode character
-     * @param contentTree the content tree to which the information will be added
+     * @param out the stream to which the information will be written
      */
     protected void addContents(Character uc, List<? extends Doc> memberlist,
-            Content contentTree) {
+            HtmlStreamWriter out) throws IOException {
         String unicode = uc.toString();
-        contentTree.addContent(getMarkerAnchorForIndex(unicode));
+        out.addContent(getMarkerAnchorForIndex(unicode));
         Content headContent = new StringContent(unicode);
         Content heading = HtmlTree.HEADING(HtmlConstants.CONTENT_HEADING, false,
                 HtmlStyle.title, headContent);
-        contentTree.addContent(heading);
+        out.addContent(heading);
         int memberListSize = memberlist.size();
         // Display the list only if there are elements to be displayed.
         if (memberListSize > 0) {
-            Content dl = new HtmlTree(HtmlTag.DL);
+            out.startElement(HtmlTag.DL);
             for (int i = 0; i < memberListSize; i++) {
                 Doc element = memberlist.get(i);
+                Content dl = new ContentBuilder();
                 if (element instanceof MemberDoc) {
                     addDescription((MemberDoc)element, dl);
                 } else if (element instanceof ClassDoc) {
@@ -110,8 +112,9 @@ public class AbstractIndexWriter extends HtmlDocletWriter {
                 } else if (element instanceof PackageDoc) {
                     addDescription((PackageDoc)element, dl);
                 }
+                out.addContent(dl);
             }
-            contentTree.addContent(dl);
+            out.endElement();
         }
     }
 
@@ -575,7 +575,7 @@ public abstract class AbstractMemberWriter {
                         ? methodType | MethodTypes.ABSTRACT.value()
                         : methodType | MethodTypes.CONCRETE.value();
             }
-            if (member.tags("dfu.hidden").length != 0) {
+            if (configuration.docIndex.isHidden(member)) {
                 // override so it doesn't show up in any other tab
                 methodType = MethodTypes.HIDDEN.value();
             }
@@ -70,7 +70,7 @@ public class AnnotationTypeWriterImpl extends SubWriterHolderWriter
             throws Exception {
         super(configuration, DocPath.forClass(annotationType));
         this.annotationType = annotationType;
-        configuration.currentcd = annotationType.asClassDoc();
+        configuration.setCurrentClassDoc(annotationType.asClassDoc());
         this.prev = prevType;
         this.next = nextType;
     }
@@ -27,9 +27,12 @@ package com.outerthoughts.html5doclet.formats.html;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -40,6 +43,7 @@ import com.sun.javadoc.*;
 import com.outerthoughts.html5doclet.formats.html.markup.*;
 import com.outerthoughts.html5doclet.internal.toolkit.*;
 import com.outerthoughts.html5doclet.internal.toolkit.util.*;
+import com.outerthoughts.html5doclet.internal.toolkit.util.ClassUseMapper.Use;
 
 /**
  * Generate class usage information.
@@ -102,37 +106,42 @@ public class ClassUseWriter extends SubWriterHolderWriter {
                           ClassDoc classdoc) throws IOException {
         super(configuration, filename);
         this.classdoc = classdoc;
-        if (mapper.classToPackageAnnotations.containsKey(classdoc.qualifiedName()))
-                pkgToPackageAnnotations = new TreeSet<PackageDoc>(mapper.classToPackageAnnotations.get(classdoc.qualifiedName()));
-        configuration.currentcd = classdoc;
+        if (mapper.hasUses(Use.PACKAGE_ANNOTATION, classdoc)) {
+            pkgToPackageAnnotations = new TreeSet<PackageDoc>();
+            for (Doc doc : mapper.getUses(Use.PACKAGE_ANNOTATION, classdoc)) {
+                pkgToPackageAnnotations.add((PackageDoc) doc);
+            }
+        }
+        configuration.setCurrentClassDoc(classdoc);
         this.pkgSet = new TreeSet<PackageDoc>();
-        this.pkgToClassTypeParameter = pkgDivide(mapper.classToClassTypeParam);
-        this.pkgToClassAnnotations = pkgDivide(mapper.classToClassAnnotations);
-        this.pkgToMethodTypeParameter = pkgDivide(mapper.classToExecMemberDocTypeParam);
-        this.pkgToMethodArgTypeParameter = pkgDivide(mapper.classToExecMemberDocArgTypeParam);
-        this.pkgToFieldTypeParameter = pkgDivide(mapper.classToFieldDocTypeParam);
-        this.pkgToFieldAnnotations = pkgDivide(mapper.annotationToFieldDoc);
-        this.pkgToMethodReturnTypeParameter = pkgDivide(mapper.classToExecMemberDocReturnTypeParam);
-        this.pkgToMethodAnnotations = pkgDivide(mapper.classToExecMemberDocAnnotations);
-        this.pkgToMethodParameterAnnotations = pkgDivide(mapper.classToExecMemberDocParamAnnotation);
-        this.pkgToSubclass = pkgDivide(mapper.classToSubclass);
-        this.pkgToSubinterface = pkgDivide(mapper.classToSubinterface);
-        this.pkgToImplementingClass = pkgDivide(mapper.classToImplementingClass);
-        this.pkgToField = pkgDivide(mapper.classToField);
-        this.pkgToMethodReturn = pkgDivide(mapper.classToMethodReturn);
-        this.pkgToMethodArgs = pkgDivide(mapper.classToMethodArgs);
-        this.pkgToMethodThrows = pkgDivide(mapper.classToMethodThrows);
-        this.pkgToConstructorAnnotations = pkgDivide(mapper.classToConstructorAnnotations);
-        this.pkgToConstructorParameterAnnotations = pkgDivide(mapper.classToConstructorParamAnnotation);
-        this.pkgToConstructorArgs = pkgDivide(mapper.classToConstructorArgs);
-        this.pkgToConstructorArgTypeParameter = pkgDivide(mapper.classToConstructorDocArgTypeParam);
-        this.pkgToConstructorThrows = pkgDivide(mapper.classToConstructorThrows);
+        this.pkgToClassTypeParameter = pkgDivide(mapper.getUses(Use.CLASS_TYPE_PARAMETER, classdoc));
+        this.pkgToClassAnnotations = pkgDivide(mapper.getUses(Use.CLASS_ANNOTATION, classdoc));
+        this.pkgToMethodTypeParameter = pkgDivide(mapper.getUses(Use.METHOD_TYPE_PARAMETER, classdoc));
+        this.pkgToMethodArgTypeParameter = pkgDivide(mapper.getUses(Use.METHOD_ARG_TYPE_PARAMETER, classdoc));
+        this.pkgToFieldTypeParameter = pkgDivide(mapper.getUses(Use.FIELD_TYPE_PARAMETER, classdoc));
+        this.pkgToFieldAnnotations = pkgDivide(mapper.getUses(Use.FIELD_ANNOTATION, classdoc));
+        this.pkgToMethodReturnTypeParameter = pkgDivide(mapper.getUses(Use.METHOD_RETURN_TYPE_PARAMETER, classdoc));
+        this.pkgToMethodAnnotations = pkgDivide(mapper.getUses(Use.METHOD_ANNOTATION, classdoc));
+        this.pkgToMethodParameterAnnotations = pkgDivide(mapper.getUses(Use.METHOD_PARAMETER_ANNOTATION, classdoc));
+        this.pkgToSubclass = pkgDivide(mapper.getUses(Use.SUBCLASS, classdoc));
+        this.pkgToSubinterface = pkgDivide(mapper.getUses(Use.SUBINTERFACE, classdoc));
+        this.pkgToImplementingClass = pkgDivide(mapper.getUses(Use.IMPLEMENTING_CLASS, classdoc));
+        this.pkgToField = pkgDivide(mapper.getUses(Use.FIELD, classdoc));
+        this.pkgToMethodReturn = pkgDivide(mapper.getUses(Use.METHOD_RETURN, classdoc));
+        this.pkgToMethodArgs = pkgDivide(mapper.getUses(Use.METHOD_ARGS, classdoc));
+        this.pkgToMethodThrows = pkgDivide(mapper.getUses(Use.METHOD_THROWS, classdoc));
+        this.pkgToConstructorAnnotations = pkgDivide(mapper.getUses(Use.CONSTRUCTOR_ANNOTATION, classdoc));
+        this.pkgToConstructorParameterAnnotations = pkgDivide(mapper.getUses(Use.CONSTRUCTOR_PARAMETER_ANNOTATION, classdoc));
+        this.pkgToConstructorArgs = pkgDivide(mapper.getUses(Use.CONSTRUCTOR_ARGS, classdoc));
+        this.pkgToConstructorArgTypeParameter = pkgDivide(mapper.getUses(Use.CONSTRUCTOR_ARG_TYPE_PARAMETER, classdoc));
+        this.pkgToConstructorThrows = pkgDivide(mapper.getUses(Use.CONSTRUCTOR_THROWS, classdoc));
         //tmp test
+        Set<PackageDoc> usingPackages = mapper.getUsingPackages(classdoc);
         if (pkgSet.size() > 0 &&
-            mapper.classToPackage.containsKey(classdoc.qualifiedName()) &&
-            !pkgSet.equals(mapper.classToPackage.get(classdoc.qualifiedName()))) {
+            !usingPackages.isEmpty() &&
+            !pkgSet.equals(usingPackages)) {
             configuration.root.printWarning("Internal error: package sets don't match: " + pkgSet + " with: " +
-                                   mapper.classToPackage.get(classdoc.qualifiedName()));
+                                   usingPackages);
         }
         methodSubWriter = new MethodWriterImpl(this);
         constrSubWriter = new ConstructorWriterImpl(this);
@@ -158,34 +167,49 @@ public class ClassUseWriter extends SubWriterHolderWriter {
      */
     public static void generate(ConfigurationImpl configuration,
                                 ClassTree classtree)  {
-        ClassUseMapper mapper = new ClassUseMapper(configuration.root, classtree);
-        ClassDoc[] classes = configuration.root.classes();
-        for (int i = 0; i < classes.length; i++) {
+        ClassUseMapper mapper = new ClassUseMapper(configuration, classtree);
+        // Write the pages package by package, so that the uses of each
+        // package can be released once its pages are written.
+        Map<PackageDoc,List<ClassDoc>> classesByPackage =
+                new LinkedHashMap<PackageDoc,List<ClassDoc>>();
+        for (PackageDoc pkg : configuration.packages) {
+            classesByPackage.put(pkg, new ArrayList<ClassDoc>());
+        }
+        for (ClassDoc cd : configuration.root.classes()) {
+            List<ClassDoc> list = classesByPackage.get(cd.containingPackage());
+            if (list == null) {
+                list = new ArrayList<ClassDoc>();
+                classesByPackage.put(cd.containingPackage(), list);
+            }
+            list.add(cd);
+        }
+        Set<PackageDoc> documented =
+                new HashSet<PackageDoc>(Arrays.asList(configuration.packages));
+        for (Map.Entry<PackageDoc,List<ClassDoc>> entry : classesByPackage.entrySet()) {
+            PackageDoc pkg = entry.getKey();
             // If -nodeprecated option is set and the containing package is marked
             // as deprecated, do not generate the class-use page. We will still generate
             // the class-use page if the class is marked as deprecated but the containing
             // package is not since it could still be linked from that package-use page.
-            if (!(configuration.nodeprecated &&
-                    Util.isDeprecated(classes[i].containingPackage())))
-                ClassUseWriter.generate(configuration, mapper, classes[i]);
-        }
-        PackageDoc[] pkgs = configuration.packages;
-        for (int i = 0; i < pkgs.length; i++) {
-            // If -nodeprecated option is set and the package is marked
-            // as deprecated, do not generate the package-use page.
-            if (!(configuration.nodeprecated && Util.isDeprecated(pkgs[i])))
-                PackageUseWriter.generate(configuration, mapper, pkgs[i]);
+            if (!(configuration.nodeprecated && Util.isDeprecated(pkg))) {
+                for (ClassDoc cd : entry.getValue()) {
+                    ClassUseWriter.generate(configuration, mapper, cd);
+                }
+                if (documented.contains(pkg)) {
+                    PackageUseWriter.generate(configuration, mapper, pkg);
+                }
+            }
+            mapper.release(pkg);
         }
     }
 
-    private Map<String,List<ProgramElementDoc>> pkgDivide(Map<String,? extends List<? extends ProgramElementDoc>> classMap) {
+    private Map<String,List<ProgramElementDoc>> pkgDivide(List<Doc> list) {
         Map<String,List<ProgramElementDoc>> map = new HashMap<String,List<ProgramElementDoc>>();
-        List<? extends ProgramElementDoc> list= classMap.get(classdoc.qualifiedName());
-        if (list != null) {
+        if (!list.isEmpty()) {
             Collections.sort(list);
-            Iterator<? extends ProgramElementDoc> it = list.iterator();
+            Iterator<Doc> it = list.iterator();
             while (it.hasNext()) {
-                ProgramElementDoc doc = it.next();
+                ProgramElementDoc doc = (ProgramElementDoc) it.next();
                 PackageDoc pkg = doc.containingPackage();
                 pkgSet.add(pkg);
                 List<ProgramElementDoc> inPkg = map.get(pkg.name());
@@ -219,6 +243,8 @@ public class ClassUseWriter extends SubWriterHolderWriter {
                 error("doclet.exception_encountered",
                       exc.toString(), path.getPath());
             throw new DocletAbortException(exc);
+        } finally {
+            configuration.setCurrentClassDoc(null);
         }
     }
 
@@ -226,35 +252,40 @@ public class ClassUseWriter extends SubWriterHolderWriter {
      * Generate the class use list.
      */
     protected void generateClassUseFile() throws IOException {
-        Content body = getClassUseHeader();
-        HtmlTree div = new HtmlTree(HtmlTag.DIV);
-        div.addStyle(HtmlStyle.classUseContainer);
+        HtmlTree body = getClassUseHeader();
+        HtmlStreamWriter out = startHtmlDocument(null, true, body);
+        out.startElement(HtmlTag.DIV, HtmlStyle.classUseContainer);
         if (pkgSet.size() > 0) {
-            addClassUse(div);
+            addClassUse(out);
         } else {
-            div.addContent(getResource("doclet.ClassUse_No.usage.of.0",
+            out.addContent(getResource("doclet.ClassUse_No.usage.of.0",
                     classdoc.qualifiedName()));
         }
-        body.addContent(div);
-        addNavLinks(false, body);
-        addBottom(body);
-        printHtmlDocument(null, true, body);
+        out.endElement();
+        Content bottom = new ContentBuilder();
+        addNavLinks(false, bottom);
+        addBottom(bottom);
+        out.addContent(bottom);
+        out.finish();
     }
 
     /**
-     * Add the class use documentation.
+     * Add the class use documentation.  The uses in each package are
+     * written as soon as they are complete, so the page never holds all
+     * of them.
      *
-     * @param contentTree the content tree to which the class use information will be added
+     * @param out the stream to which the class use information will be written
      */
-    protected void addClassUse(Content contentTree) throws IOException {
-        HtmlTree ul = new HtmlTree(HtmlTag.UL);
-        ul.addStyle(HtmlStyle.blockList);
+    protected void addClassUse(HtmlStreamWriter out) throws IOException {
+        out.startElement(HtmlTag.UL, HtmlStyle.blockList);
         if (configuration.packages.length > 1) {
-            addPackageList(ul);
-            addPackageAnnotationList(ul);
+            Content packageLists = new ContentBuilder();
+            addPackageList(packageLists);
+            addPackageAnnotationList(packageLists);
+            out.addContent(packageLists);
         }
-        addClassList(ul);
-        contentTree.addContent(ul);
+        addClassList(out);
+        out.endElement();
     }
 
     /**
@@ -331,11 +362,11 @@ public class ClassUseWriter extends SubWriterHolderWriter {
     /**
      * Add the class list that use the given class.
      *
-     * @param contentTree the content tree to which the class list will be added
+     * @param out the stream to which the class list will be written
      */
-    protected void addClassList(Content contentTree) throws IOException {
-        HtmlTree ul = new HtmlTree(HtmlTag.UL);
-        ul.addStyle(HtmlStyle.blockList);
+    protected void addClassList(HtmlStreamWriter out) throws IOException {
+        out.startElement(HtmlTag.LI, HtmlStyle.blockList);
+        out.startElement(HtmlTag.UL, HtmlStyle.blockList);
         for (Iterator<PackageDoc> it = pkgSet.iterator(); it.hasNext();) {
             PackageDoc pkg = it.next();
             Content li = HtmlTree.LI(HtmlStyle.blockList, getMarkerAnchor(pkg.name()));
@@ -346,10 +377,10 @@ public class ClassUseWriter extends SubWriterHolderWriter {
             Content heading = HtmlTree.HEADING(HtmlConstants.SUMMARY_HEADING, link);
             li.addContent(heading);
             addClassUse(pkg, li);
-            ul.addContent(li);
+            out.addContent(li);
         }
-        Content li = HtmlTree.LI(HtmlStyle.blockList, ul);
-        contentTree.addContent(li);
+        out.endElement();
+        out.endElement();
     }
 
     /**
@@ -448,13 +479,13 @@ public class ClassUseWriter extends SubWriterHolderWriter {
      *
      * @return a content tree representing the class use header
      */
-    protected Content getClassUseHeader() {
+    protected HtmlTree getClassUseHeader() {
         String cltype = configuration.getText(classdoc.isInterface()?
             "doclet.Interface":"doclet.Class");
         String clname = classdoc.qualifiedName();
         String title = configuration.getText("doclet.Window_ClassUse_Header",
                 cltype, clname);
-        Content bodyTree = getBody(true, getWindowTitle(title));
+        HtmlTree bodyTree = getBody(true, getWindowTitle(title));
         addTop(bodyTree);
         addNavLinks(true, bodyTree);
         ContentBuilder headContent = new ContentBuilder();
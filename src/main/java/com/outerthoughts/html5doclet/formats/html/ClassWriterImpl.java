@@ -78,7 +78,7 @@ public class ClassWriterImpl extends SubWriterHolderWriter
             throws IOException {
         super(configuration, DocPath.forClass(classDoc));
         this.classDoc = classDoc;
-        configuration.currentcd = classDoc;
+        configuration.setCurrentClassDoc(classDoc);
         this.classtree = classTree;
         this.prev = prevClass;
         this.next = nextClass;
@@ -278,7 +278,7 @@ public class ClassWriterImpl extends SubWriterHolderWriter
                 ClassDoc classDoc = implIntfacs[i].asClassDoc();
                 if (! (classDoc.isPublic() ||
                         Util.isLinkable(classDoc, configuration)) ||
-                    classDoc.tags("dfu.hidden").length != 0) {
+                    configuration.docIndex.isHidden(classDoc)) {
                     continue;
                 }
                 if (counter == 0) {
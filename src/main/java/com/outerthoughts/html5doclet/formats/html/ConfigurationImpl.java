@@ -27,13 +27,17 @@ package com.outerthoughts.html5doclet.formats.html;
 
 import java.net.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.tools.JavaFileManager;
 
 import com.sun.javadoc.*;
 import com.outerthoughts.html5doclet.formats.html.markup.ContentBuilder;
+import com.outerthoughts.html5doclet.formats.html.markup.HtmlLabels;
 import com.outerthoughts.html5doclet.internal.toolkit.*;
 import com.outerthoughts.html5doclet.internal.toolkit.util.*;
+import com.outerthoughts.html5doclet.internal.toolkit.util.links.ShapeProgram;
 import com.sun.tools.doclint.DocLint;
 import com.sun.tools.javac.file.JavacFileManager;
 import com.sun.tools.javac.util.Context;
@@ -131,11 +135,24 @@ public class ConfigurationImpl extends Configuration {
      */
     public boolean splitindex = false;
 
+    /**
+     * The largest number of members on a page of the split index, set with
+     * the "-splitindexsize" option, which takes a positive number.  Default
+     * is 0, when the option is not used, which puts all members of a letter
+     * on one page.
+     */
+    public int splitindexsize = 0;
+
     /**
      * False if command line option "-noindex" is used. Default value is true.
      */
     public boolean createindex = true;
 
+    /**
+     * True if command line option "-search" is used. Default value is false.
+     */
+    public boolean search = false;
+
     /**
      * True if command line option "-use" is used. Default value is false.
      */
@@ -179,6 +196,22 @@ public class ConfigurationImpl extends Configuration {
      */
     public final Map<String, String> templateStringsByClass = new HashMap<>();
 
+    /**
+     * Map of type name -> compiled type shape, filled in as links to the
+     * type are generated.
+     */
+    public final ConcurrentMap<String, ShapeProgram> shapePrograms = new ConcurrentHashMap<>();
+
+    /**
+     * The labels shared by all writers.
+     */
+    public final HtmlLabels labels = new HtmlLabels(this);
+
+    /**
+     * The rendered links to documented classes and members.
+     */
+    public final LinkCache linkCache = new LinkCache();
+
     /**
      * Collected set of doclint options
      */
@@ -196,9 +229,10 @@ public class ConfigurationImpl extends Configuration {
     public DocPath topFile = DocPath.empty;
 
     /**
-     * The classdoc for the class file getting generated.
+     * The classdoc for the class file getting generated. Kept per thread so
+     * that class pages may be generated concurrently.
      */
-    public ClassDoc currentcd = null;  // Set this classdoc in the ClassWriter.
+    private final ThreadLocal<ClassDoc> currentcd = new ThreadLocal<ClassDoc>();
 
     /**
      * Constructor. Initializes resource for the
@@ -212,6 +246,22 @@ public class ConfigurationImpl extends Configuration {
     private final String versionRBName = "com.sun.tools.javadoc.resources.version";
     private ResourceBundle versionRB;
 
+    /**
+     * Return the classdoc for the class file getting generated on
+     * the current thread.
+     */
+    public ClassDoc getCurrentClassDoc() {
+        return currentcd.get();
+    }
+
+    /**
+     * Set the classdoc for the class file getting generated on the
+     * current thread.  Set this classdoc in the ClassWriter.
+     */
+    public void setCurrentClassDoc(ClassDoc cd) {
+        currentcd.set(cd);
+    }
+
     /**
      * Return the build date for the doclet.
      */
@@ -269,8 +319,12 @@ public class ConfigurationImpl extends Configuration {
                 nohelp = true;
             } else if (opt.equals("-splitindex")) {
                 splitindex = true;
+            } else if (opt.equals("-splitindexsize")) {
+                splitindexsize = Integer.parseInt(os[1]);
             } else if (opt.equals("-noindex")) {
                 createindex = false;
+            } else if (opt.equals("-search")) {
+                search = true;
             } else if (opt.equals("-use")) {
                 classuse = true;
             } else if (opt.equals("-notree")) {
@@ -338,6 +392,7 @@ public class ConfigurationImpl extends Configuration {
             option.equals("-notree") ||
             option.equals("-nohelp") ||
             option.equals("-splitindex") ||
+            option.equals("-search") ||
             option.equals("-serialwarn") ||
             option.equals("-use") ||
             option.equals("-nonavbar") ||
@@ -370,6 +425,7 @@ public class ConfigurationImpl extends Configuration {
                    option.equals("-stylesheetfile") ||
                    option.equals("-charset") ||
                    option.equals("-overview") ||
+                   option.equals("-splitindexsize") ||
                    option.equals("-xdocrootparent")) {
             return 2;
         } else if (option.equals("-shape")) {
@@ -391,6 +447,7 @@ public class ConfigurationImpl extends Configuration {
         boolean overview = false;
         boolean nooverview = false;
         boolean splitindex = false;
+        boolean splitindexsize = false;
         boolean noindex = false;
         // check shared options
         if (!generalValidOptions(options, reporter)) {
@@ -464,6 +521,19 @@ public class ConfigurationImpl extends Configuration {
                     return false;
                 }
                 noindex = true;
+            } else if (opt.equals("-splitindexsize")) {
+                boolean valid;
+                try {
+                    valid = Integer.parseInt(os[1]) > 0;
+                } catch (NumberFormatException exc) {
+                    valid = false;
+                }
+                if (!valid) {
+                    reporter.printError(getText("doclet.Option_splitindexsize_invalid_arg",
+                        os[1]));
+                    return false;
+                }
+                splitindexsize = true;
             } else if (opt.startsWith("-xdoclint:")) {
                 if (opt.contains("/")) {
                     reporter.printError(getText("doclet.Option_doclint_no_qualifiers"));
@@ -476,6 +546,9 @@ public class ConfigurationImpl extends Configuration {
                 }
             }
         }
+        if (splitindexsize && !splitindex) {
+            reporter.printWarning(getText("doclet.Option_splitindexsize_without_splitindex"));
+        }
         return true;
     }
 
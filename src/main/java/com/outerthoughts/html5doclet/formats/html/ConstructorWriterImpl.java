@@ -59,8 +59,8 @@ public class ConstructorWriterImpl extends AbstractExecutableMemberWriter
     public ConstructorWriterImpl(SubWriterHolderWriter writer,
             ClassDoc classDoc) {
         super(writer, classDoc);
-        VisibleMemberMap visibleMemberMap = new VisibleMemberMap(classDoc,
-            VisibleMemberMap.CONSTRUCTORS, configuration);
+        VisibleMemberMap visibleMemberMap = configuration.visibleMemberIndex.getVisibleMemberMap(
+            classDoc, VisibleMemberMap.CONSTRUCTORS);
         List<ProgramElementDoc> constructors = new ArrayList<ProgramElementDoc>(visibleMemberMap.getMembersFor(classDoc));
         for (int i = 0; i < constructors.size(); i++) {
             if ((constructors.get(i)).isProtected() ||
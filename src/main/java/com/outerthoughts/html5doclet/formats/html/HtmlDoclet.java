@@ -26,6 +26,7 @@ package com.outerthoughts.html5doclet.formats.html;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 import com.sun.javadoc.*;
 import com.sun.tools.javac.sym.Profiles;
@@ -51,6 +52,12 @@ public class HtmlDoclet extends AbstractDoclet {
     // An instance will be created by validOptions, and used by start.
     private static HtmlDoclet docletToStart = null;
 
+    // The class pages collected for concurrent generation, if any.
+    private List<ClassDoc[]> classPages = null;
+
+    // The index shared by the index and all-classes stages.
+    private IndexBuilder indexbuilder = null;
+
     public HtmlDoclet() {
         configuration = new ConfigurationImpl();
     }
@@ -90,21 +97,34 @@ public class HtmlDoclet extends AbstractDoclet {
     }
 
     /**
-     * Start the generation of files. Call generate methods in the individual
-     * writers, which will in turn genrate the documentation files. Call the
-     * TreeWriter generation first to ensure the Class Hierarchy is built
-     * first and then can be used in the later generation.
-     *
-     * For new format.
+     * {@inheritDoc}
+     */
+    @Override
+    protected void printStatistics() {
+        LinkCache linkCache = configuration.linkCache;
+        configuration.getDocletSpecificMsg().notice("doclet.Link_cache_stats",
+            String.valueOf(linkCache.getMissCount()),
+            String.valueOf(linkCache.getHitCount()),
+            String.valueOf(linkCache.size()));
+    }
+
+    /**
+     * {@inheritDoc}
      *
-     * @see com.sun.javadoc.RootDoc
+     * @param stages    the graph to add the stages to.
+     * @param root      the RootDoc of source to document.
+     * @param classtree the data structure representing the class tree.
      */
-    protected void generateOtherFiles(RootDoc root, ClassTree classtree)
-            throws Exception {
-        super.generateOtherFiles(root, classtree);
+    protected void addOtherFileStages(StageGraph stages, final RootDoc root,
+            final ClassTree classtree) throws Exception {
+        super.addOtherFileStages(stages, root, classtree);
         if (configuration.linksource) {
-            SourceToHTMLConverter.convertRoot(configuration,
-                root, DocPaths.SOURCE_OUTPUT);
+            stages.addStage("source", new StageGraph.Stage() {
+                public void run() {
+                    SourceToHTMLConverter.convertRoot(configuration,
+                        root, DocPaths.SOURCE_OUTPUT);
+                }
+            });
         }
 
         if (configuration.topFile.isEmpty()) {
@@ -112,51 +132,123 @@ public class HtmlDoclet extends AbstractDoclet {
                 error("doclet.No_Non_Deprecated_Classes_To_Document");
             return;
         }
-        boolean nodeprecated = configuration.nodeprecated;
-        performCopy(configuration.helpfile);
-        performCopy(configuration.stylesheetfile);
-        // do early to reduce memory footprint
+        final boolean nodeprecated = configuration.nodeprecated;
+        stages.addStage("user-files", new StageGraph.Stage() {
+            public void run() {
+                performCopy(configuration.helpfile);
+                performCopy(configuration.stylesheetfile);
+            }
+        });
         if (configuration.classuse) {
-            ClassUseWriter.generate(configuration, classtree);
+            stages.addStage("class-use", new StageGraph.Stage() {
+                public void run() {
+                    ClassUseWriter.generate(configuration, classtree);
+                }
+            });
         }
-        IndexBuilder indexbuilder = new IndexBuilder(configuration, nodeprecated);
-
         if (configuration.createtree) {
-            TreeWriter.generate(configuration, classtree);
+            stages.addStage("tree", new StageGraph.Stage() {
+                public void run() {
+                    TreeWriter.generate(configuration, classtree);
+                }
+            });
         }
-        if (configuration.createindex) {
-            if (configuration.splitindex) {
-                SplitIndexWriter.generate(configuration, indexbuilder);
-            } else {
-                SingleIndexWriter.generate(configuration, indexbuilder);
+        // The index of all classes is taken from the full index, if one is
+        // built, so the classes and members are only collected once.
+        stages.addStage("index-builder", new StageGraph.Stage() {
+            public void run() {
+                indexbuilder = new IndexBuilder(configuration, nodeprecated,
+                        !(configuration.createindex || configuration.search));
             }
+        });
+        if (configuration.search) {
+            stages.addStage("search-index", new StageGraph.Stage() {
+                public void run() {
+                    SearchIndexWriter.generate(configuration, indexbuilder);
+                }
+            }, "index-builder");
+        }
+        if (configuration.createindex) {
+            stages.addStage("index", new StageGraph.Stage() {
+                public void run() {
+                    if (configuration.splitindex) {
+                        SplitIndexWriter.generate(configuration, indexbuilder);
+                    } else {
+                        SingleIndexWriter.generate(configuration, indexbuilder);
+                    }
+                }
+            }, "index-builder");
         }
 
         if (!(configuration.nodeprecatedlist || nodeprecated)) {
-            DeprecatedListWriter.generate(configuration);
+            stages.addStage("deprecated-list", new StageGraph.Stage() {
+                public void run() {
+                    DeprecatedListWriter.generate(configuration);
+                }
+            });
         }
 
-        AllClassesFrameWriter.generate(configuration,
-            new IndexBuilder(configuration, nodeprecated, true));
-
-        FrameOutputWriter.generate(configuration);
+        stages.addStage("all-classes", new StageGraph.Stage() {
+            public void run() {
+                AllClassesFrameWriter.generate(configuration,
+                    indexbuilder.getClassesIndex());
+            }
+        }, "index-builder");
+        stages.addStage("frames", new StageGraph.Stage() {
+            public void run() {
+                FrameOutputWriter.generate(configuration);
+            }
+        });
 
         if (configuration.createoverview) {
-            PackageIndexWriter.generate(configuration);
+            stages.addStage("overview", new StageGraph.Stage() {
+                public void run() {
+                    PackageIndexWriter.generate(configuration);
+                }
+            });
         }
         if (configuration.helpfile.length() == 0 &&
             !configuration.nohelp) {
-            HelpWriter.generate(configuration);
+            stages.addStage("help", new StageGraph.Stage() {
+                public void run() {
+                    HelpWriter.generate(configuration);
+                }
+            });
         }
-        // If a stylesheet file is not specified, copy the default stylesheet
-        // and replace newline with platform-specific newline.
-        DocFile f;
-        if (configuration.stylesheetfile.length() == 0) {
-            f = DocFile.createFileForOutput(configuration, DocPaths.STYLESHEET);
-            f.copyResource(DocPaths.RESOURCES.resolve(DocPaths.STYLESHEET), false, true);
+        stages.addStage("resources", new StageGraph.Stage() {
+            public void run() throws Exception {
+                // If a stylesheet file is not specified, copy the default stylesheet
+                // and replace newline with platform-specific newline.
+                DocFile f;
+                if (configuration.stylesheetfile.length() == 0) {
+                    f = DocFile.createFileForOutput(configuration, DocPaths.STYLESHEET);
+                    f.copyResource(DocPaths.RESOURCES.resolve(DocPaths.STYLESHEET), false, true);
+                }
+                f = DocFile.createFileForOutput(configuration, DocPaths.JAVASCRIPT);
+                f.copyResource(DocPaths.RESOURCES.resolve(DocPaths.JAVASCRIPT), true, true);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * If more than one thread is configured, the class pages are
+     * generated concurrently once all classes have been collected.
+     */
+    @Override
+    protected void generateClassFiles(RootDoc root, ClassTree classtree) {
+        if (configuration.threads <= 1) {
+            super.generateClassFiles(root, classtree);
+            return;
+        }
+        classPages = new ArrayList<ClassDoc[]>();
+        try {
+            super.generateClassFiles(root, classtree);
+            generateClassFilesConcurrently(classPages, classtree);
+        } finally {
+            classPages = null;
         }
-        f = DocFile.createFileForOutput(configuration, DocPaths.JAVASCRIPT);
-        f.copyResource(DocPaths.RESOURCES.resolve(DocPaths.JAVASCRIPT), true, true);
     }
 
     /**
@@ -175,27 +267,112 @@ public class HtmlDoclet extends AbstractDoclet {
             ClassDoc next = (i+1 == arr.length)?
                 null:
                 arr[i+1];
-            try {
-                if (curr.isAnnotationType()) {
-                    AbstractBuilder annotationTypeBuilder =
-                        configuration.getBuilderFactory()
-                            .getAnnotationTypeBuilder((AnnotationTypeDoc) curr,
-                                prev, next);
-                    annotationTypeBuilder.build();
-                } else {
-                    AbstractBuilder classBuilder =
-                        configuration.getBuilderFactory()
-                            .getClassBuilder(curr, prev, next, classtree);
-                    classBuilder.build();
+            if (classPages != null) {
+                classPages.add(new ClassDoc[] {prev, curr, next});
+            } else {
+                generateClassFile(prev, curr, next, classtree);
+            }
+        }
+    }
+
+    /**
+     * Generate the page for a single class.
+     *
+     * @param prev the previous class in the navigation bar, or null.
+     * @param curr the class to document.
+     * @param next the next class in the navigation bar, or null.
+     * @param classtree the data structure representing the class tree.
+     */
+    private void generateClassFile(ClassDoc prev, ClassDoc curr, ClassDoc next,
+            ClassTree classtree) {
+        PageManifest manifest = configuration.pageManifest;
+        if (manifest != null) {
+            // The fingerprint reads the comments, which javadoc parses only
+            // once, so the documentation of values() and valueOf() must be
+            // set first.  The other pages show it even if this one is kept.
+            if (curr.isEnum()) {
+                Util.setEnumDocumentation(configuration, curr);
+            }
+            if (!manifest.needsGeneration(DocPath.forClass(curr),
+                    manifest.fingerprint(curr, prev, next))) {
+                return;
+            }
+        }
+        try {
+            if (curr.isAnnotationType()) {
+                AbstractBuilder annotationTypeBuilder =
+                    configuration.getBuilderFactory()
+                        .getAnnotationTypeBuilder((AnnotationTypeDoc) curr,
+                            prev, next);
+                annotationTypeBuilder.build();
+            } else {
+                AbstractBuilder classBuilder =
+                    configuration.getBuilderFactory()
+                        .getClassBuilder(curr, prev, next, classtree);
+                classBuilder.build();
+            }
+        } catch (IOException e) {
+            throw new DocletAbortException(e);
+        } catch (DocletAbortException de) {
+            throw de;
+        } catch (Exception e) {
+            e.printStackTrace();
+            throw new DocletAbortException(e);
+        } finally {
+            // Pages generated later must not see this class as current,
+            // whichever thread they are generated on.
+            configuration.setCurrentClassDoc(null);
+        }
+    }
+
+    /**
+     * Generate the given class pages on a pool of {@code configuration.threads}
+     * threads.  The javadoc model must already be preloaded, since it is not
+     * safe to compute concurrently.  Failures are reported for the first
+     * failing class in document order.
+     *
+     * @param pages the previous, current and next class of each page.
+     * @param classtree the data structure representing the class tree.
+     */
+    private void generateClassFilesConcurrently(List<ClassDoc[]> pages,
+            final ClassTree classtree) {
+        if (pages.isEmpty()) {
+            return;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(configuration.threads, pages.size()), new ThreadFactory() {
+                    private int count = 0;
+                    public synchronized Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, "doclet-worker-" + (++count));
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+        try {
+            List<Future<?>> futures = new ArrayList<Future<?>>(pages.size());
+            for (final ClassDoc[] page : pages) {
+                futures.add(executor.submit(new Runnable() {
+                    public void run() {
+                        generateClassFile(page[0], page[1], page[2], classtree);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof DocletAbortException) {
+                        throw (DocletAbortException) cause;
+                    }
+                    throw new DocletAbortException(cause);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new DocletAbortException(e);
                 }
-            } catch (IOException e) {
-                throw new DocletAbortException(e);
-            } catch (DocletAbortException de) {
-                throw de;
-            } catch (Exception e) {
-                e.printStackTrace();
-                throw new DocletAbortException(e);
             }
+        } finally {
+            executor.shutdownNow();
         }
     }
 
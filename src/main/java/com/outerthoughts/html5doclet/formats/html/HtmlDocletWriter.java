@@ -397,6 +397,46 @@ public class HtmlDocletWriter extends HtmlDocWriter {
             Content body) throws IOException {
         Content htmlDocType = DocType.TRANSITIONAL;
         Content htmlComment = new Comment(configuration.getText("doclet.New_Page"));
+        Content htmlTree = HtmlTree.HTML(configuration.getLocale().getLanguage(),
+                getHead(metakeywords), body);
+        Content htmlDocument = new HtmlDocument(htmlDocType,
+                htmlComment, htmlTree);
+        write(htmlDocument);
+    }
+
+    /**
+     * Prints the HTML document up to the start of the body, and returns the
+     * stream to which the rest of the body is written.  The document is
+     * complete once {@link HtmlStreamWriter#finish()} is called.
+     *
+     * @param metakeywords Array of String keywords for META tag. Each element
+     *                     of the array is assigned to a separate META tag.
+     *                     Pass in null for no array
+     * @param includeScript true if printing windowtitle script
+     *                      false for files that appear in the left-hand frames
+     * @param body the start of the body htmltree, which must not be changed
+     *             afterwards
+     * @return the stream positioned inside the body
+     */
+    public HtmlStreamWriter startHtmlDocument(String[] metakeywords, boolean includeScript,
+            HtmlTree body) throws IOException {
+        HtmlStreamWriter out = openStream();
+        out.addContent(DocType.TRANSITIONAL);
+        out.addContent(new Comment(configuration.getText("doclet.New_Page")));
+        HtmlTree htmlTree = new HtmlTree(HtmlTag.HTML, getHead(metakeywords));
+        htmlTree.addAttr(HtmlAttr.LANG, configuration.getLocale().getLanguage());
+        out.startElement(htmlTree);
+        out.startElement(body);
+        return out;
+    }
+
+    /**
+     * Get the head of the HTML document.
+     *
+     * @param metakeywords the keywords for META tags, or null for none
+     * @return the head htmltree
+     */
+    private Content getHead(String[] metakeywords) {
         Content head = new HtmlTree(HtmlTag.HEAD);
         head.addContent(getGeneratedBy(!configuration.notimestamp));
         if (configuration.charset.length() > 0) {
@@ -418,11 +458,7 @@ public class HtmlDocletWriter extends HtmlDocWriter {
         }
         head.addContent(getStyleSheetProperties());
         head.addContent(getScriptProperties());
-        Content htmlTree = HtmlTree.HTML(configuration.getLocale().getLanguage(),
-                head, body);
-        Content htmlDocument = new HtmlDocument(htmlDocType,
-                htmlComment, htmlTree);
-        write(htmlDocument);
+        return head;
     }
 
     /**
@@ -563,6 +599,9 @@ public class HtmlDocletWriter extends HtmlDocWriter {
             subDiv.addContent(ulAllClasses);
             subDiv.addContent(getAllClassesLinkScript(allClassesId.toString()));
             addSummaryDetailLinks(subDiv);
+            if (header && configuration.search) {
+                subDiv.addContent(getSearchBox());
+            }
             if (header) {
                 subDiv.addContent(getMarkerAnchor(SectionName.SKIP_NAVBAR_TOP));
                 body.addContent(subDiv);
@@ -575,6 +614,24 @@ public class HtmlDocletWriter extends HtmlDocWriter {
         }
     }
 
+    /**
+     * Get the search box, which looks up names in the search index written
+     * by {@link SearchIndexWriter}.
+     *
+     * @return a content tree for the search box
+     */
+    protected Content getSearchBox() {
+        HtmlTree label = new HtmlTree(HtmlTag.LABEL, getResource("doclet.Search"));
+        label.addAttr(HtmlAttr.FOR, "search");
+        HtmlTree input = new HtmlTree(HtmlTag.INPUT);
+        input.addAttr(HtmlAttr.TYPE, "text");
+        input.addAttr(HtmlAttr.ID, "search");
+        input.addAttr(HtmlAttr.ONINPUT, "search(this);");
+        HtmlTree div = HtmlTree.DIV(HtmlStyle.navSearch, label);
+        div.addContent(input);
+        return div;
+    }
+
     /**
      * Get the word "NEXT" to indicate that no link is available.  Override
      * this method to customize next link.
@@ -1445,7 +1502,7 @@ public class HtmlDocletWriter extends HtmlDocWriter {
                         tagName, seetext);
                 }
             }
-            if (configuration.currentcd != containing) {
+            if (configuration.getCurrentClassDoc() != containing) {
                 refMemName = containing.name() + "." + refMemName;
             }
             if (refMem instanceof ExecutableMemberDoc) {
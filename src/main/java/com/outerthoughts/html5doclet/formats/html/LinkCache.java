@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2021, Thalia Nero
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  This particular file is
+ * designated as subject to the "Classpath" exception as provided in
+ * the LICENSE file that accompanies this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.outerthoughts.html5doclet.formats.html;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.outerthoughts.html5doclet.formats.html.markup.RawHtml;
+import com.outerthoughts.html5doclet.internal.toolkit.Content;
+
+/**
+ * The links to documented classes and members, rendered once and shared by
+ * all pages of a run.  The same class is linked to from thousands of
+ * signatures, and each link used to be built again as a new tree.
+ *
+ * <p>A link is looked up by a key that holds everything its HTML depends
+ * on.  Its href is relative to the page, so pages at the same depth of the
+ * output share their links, and pages at other depths get their own.
+ * Links are kept as {@link RawHtml}, which cannot be changed, so one link
+ * can be added to any number of trees.
+ *
+ *  <p><b>This is NOT part of any supported API.
+ *  If you write code that depends on this, you do so at your own risk.
+ *  This code and its internal interfaces are subject to change or
+ *  deletion without notice.</b>
+ */
+public class LinkCache {
+
+    /**
+     * The number of links after which new links are no longer kept.
+     */
+    private static final int MAX_LINKS = 200000;
+
+    private final ConcurrentMap<String,Content> links =
+            new ConcurrentHashMap<String,Content>();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Return the link for the given key, or null if it was not added yet.
+     *
+     * @param key the key of the link.
+     */
+    public Content get(String key) {
+        Content link = links.get(key);
+        if (link != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return link;
+    }
+
+    /**
+     * Render the given link, and keep it for the given key.  If another
+     * thread added the same link first, return that one instead.
+     *
+     * @param key  the key of the link.
+     * @param link the link, which must be valid.
+     * @return the rendered link.
+     */
+    public Content put(String key, Content link) {
+        Content rendered = new RawHtml(link.toString());
+        if (links.size() >= MAX_LINKS) {
+            return rendered;
+        }
+        Content previous = links.putIfAbsent(key, rendered);
+        return previous != null ? previous : rendered;
+    }
+
+    /**
+     * Return the number of links found in the cache.
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Return the number of links that had to be built.
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Return the number of links kept.
+     */
+    public int size() {
+        return links.size();
+    }
+}
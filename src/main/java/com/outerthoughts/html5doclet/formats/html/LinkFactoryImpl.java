@@ -68,12 +68,9 @@ public class LinkFactoryImpl extends LinkFactory {
         ClassDoc classDoc = classLinkInfo.classDoc;
         //Create a tool tip if we are linking to a class or interface.  Don't
         //create one if we are linking to a member.
-        String title =
-            (classLinkInfo.where == null || classLinkInfo.where.length() == 0) ?
-                getClassToolTip(classDoc,
-                    classLinkInfo.type != null &&
-                    !classDoc.qualifiedTypeName().equals(classLinkInfo.type.qualifiedTypeName())) :
-            "";
+        boolean hasTitle = classLinkInfo.where == null || classLinkInfo.where.length() == 0;
+        boolean isTypeLink = classLinkInfo.type != null &&
+            !classDoc.qualifiedTypeName().equals(classLinkInfo.type.qualifiedTypeName());
         Content label = classLinkInfo.getClassLinkLabel(m_writer.configuration, labelOverride);
         Configuration configuration = m_writer.configuration;
         Content link = new ContentBuilder();
@@ -82,11 +79,9 @@ public class LinkFactoryImpl extends LinkFactory {
                 DocPath filename = getPath(classLinkInfo);
                 if (linkInfo.linkToSelf ||
                                 !(DocPath.forName(classDoc)).equals(m_writer.filename)) {
-                        link.addContent(m_writer.getHyperLink(
-                                filename.fragment(classLinkInfo.where),
-                            label,
-                            classLinkInfo.isStrong, classLinkInfo.styleName,
-                            title, classLinkInfo.target));
+                        link.addContent(getHyperLink(classLinkInfo,
+                            filename.fragment(classLinkInfo.where), label,
+                            hasTitle, isTypeLink));
                         if (noLabel && !classLinkInfo.excludeTypeParameterLinks) {
                             link.addContent(getTypeParameterLinks(linkInfo));
                         }
@@ -114,6 +109,40 @@ public class LinkFactoryImpl extends LinkFactory {
         return link;
     }
 
+    /**
+     * Return the hyperlink to a documented class or member, rendered once
+     * per run for each href, label and style.
+     */
+    private Content getHyperLink(LinkInfoImpl linkInfo, DocLink link, Content label,
+            boolean hasTitle, boolean isTypeLink) {
+        ClassDoc classDoc = linkInfo.classDoc;
+        if (label.isEmpty()) {
+            // An empty link is dropped by the tree it is added to.
+            return m_writer.getHyperLink(link, label, linkInfo.isStrong, linkInfo.styleName,
+                hasTitle ? getClassToolTip(classDoc, isTypeLink) : "", linkInfo.target);
+        }
+        String href = link.toString();
+        String labelHtml = label.toString();
+        StringBuilder sb = new StringBuilder(classDoc.qualifiedName().length() +
+            href.length() + labelHtml.length() + 16);
+        sb.append(classDoc.qualifiedName()).append('\0')
+            .append(hasTitle ? (isTypeLink ? 'T' : 'C') : '-')
+            .append(linkInfo.isStrong ? 'S' : '-').append('\0')
+            .append(href).append('\0')
+            .append(labelHtml).append('\0')
+            .append(linkInfo.styleName).append('\0')
+            .append(linkInfo.target);
+        String key = sb.toString();
+        LinkCache cache = m_writer.configuration.linkCache;
+        Content cached = cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        return cache.put(key, m_writer.getHyperLink(link, label, linkInfo.isStrong,
+            linkInfo.styleName, hasTitle ? getClassToolTip(classDoc, isTypeLink) : "",
+            linkInfo.target));
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -68,8 +68,8 @@ public class PackageUseWriter extends SubWriterHolderWriter {
         ClassDoc[] content = pkgdoc.allClasses();
         for (int i = 0; i < content.length; ++i) {
             ClassDoc usedClass = content[i];
-            Set<ClassDoc> usingClasses = mapper.classToClass.get(usedClass.qualifiedName());
-            if (usingClasses != null) {
+            Set<ClassDoc> usingClasses = mapper.getUsingClasses(usedClass);
+            if (!usingClasses.isEmpty()) {
                 for (Iterator<ClassDoc> it = usingClasses.iterator(); it.hasNext(); ) {
                     ClassDoc usingClass = it.next();
                     PackageDoc usingPackage = usingClass.containingPackage();
@@ -0,0 +1,250 @@
+/*
+ * Copyright (C) 2021, Thalia Nero
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  This particular file is
+ * designated as subject to the "Classpath" exception as provided in
+ * the LICENSE file that accompanies this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.outerthoughts.html5doclet.formats.html;
+
+import java.io.*;
+import java.util.*;
+
+import com.sun.javadoc.*;
+import com.outerthoughts.html5doclet.formats.html.markup.*;
+import com.outerthoughts.html5doclet.internal.toolkit.util.*;
+
+/**
+ * Generate the search index, "search-index.js", from the entries of the
+ * {@link IndexBuilder}.  The index is read by the search box of script.js,
+ * which loads it the first time a name is typed, so browsing the
+ * documentation does not pull it in.
+ *
+ * <p>The file calls {@code searchIndexLoaded} with an object that holds:
+ * <ul>
+ * <li>{@code packages}, the names of the packages;
+ * <li>{@code types}, the package index and name of each class;
+ * <li>{@code prefixes} and {@code names}, the names of the entries, sorted
+ * ignoring case and front coded: each name is the given number of leading
+ * characters of the previous name followed by the given suffix, except that
+ * every {@code blockSize}-th name is stored whole, so that a prefix can be
+ * looked up with a binary search over those names;
+ * <li>{@code targets}, what each entry is: {@code [0, package]},
+ * {@code [1, type]}, {@code [2, type(, anchor)]} for a field, with the
+ * anchor given only if it is not the name, or
+ * {@code [3, type, signature, anchor]} for a method or constructor.
+ * </ul>
+ * Strings are written with escapes for all characters other than printable
+ * ASCII, so the file does not depend on the encoding of the pages.
+ *
+ *  <p><b>This is NOT part of any supported API.
+ *  If you write code that depends on this, you do so at your own risk.
+ *  This code and its internal interfaces are subject to change or
+ *  deletion without notice.</b>
+ */
+public class SearchIndexWriter extends HtmlDocletWriter {
+
+    /**
+     * The number of names in each block of the front coded names.
+     */
+    private static final int BLOCK_SIZE = 16;
+
+    private final IndexBuilder indexbuilder;
+
+    private final Map<String,Integer> packageIds = new HashMap<String,Integer>();
+
+    private final List<String> packageNames = new ArrayList<String>();
+
+    private final Map<ClassDoc,Integer> typeIds = new HashMap<ClassDoc,Integer>();
+
+    private final StringBuilder types = new StringBuilder();
+
+    /**
+     * Construct the SearchIndexWriter.
+     *
+     * @param filename     Name of the search index to be generated.
+     * @param indexbuilder Unicode based Index from {@link IndexBuilder}
+     */
+    public SearchIndexWriter(ConfigurationImpl configuration,
+                             DocPath filename,
+                             IndexBuilder indexbuilder) throws IOException {
+        super(configuration, filename);
+        this.indexbuilder = indexbuilder;
+    }
+
+    /**
+     * Generate the search index.
+     *
+     * @param indexbuilder IndexBuilder built by {@link IndexBuilder}
+     * @throws DocletAbortException
+     */
+    public static void generate(ConfigurationImpl configuration,
+                                IndexBuilder indexbuilder) {
+        SearchIndexWriter indexgen;
+        DocPath filename = DocPaths.SEARCH_INDEX;
+        try {
+            indexgen = new SearchIndexWriter(configuration,
+                                             filename, indexbuilder);
+            indexgen.generateSearchIndex();
+            indexgen.close();
+        } catch (IOException exc) {
+            configuration.standardmessage.error(
+                        "doclet.exception_encountered",
+                        exc.toString(), filename);
+            throw new DocletAbortException(exc);
+        }
+    }
+
+    /**
+     * Generate the search index, with the entries of all Unicode characters.
+     */
+    protected void generateSearchIndex() throws IOException {
+        final List<Doc> docs = new ArrayList<Doc>();
+        for (Object unicode : indexbuilder.elements()) {
+            docs.addAll(indexbuilder.getMemberList((Character) unicode));
+        }
+        // The index is bucketed by upper case first letter, but the search
+        // box needs a single order: sort by key, keeping the index order of
+        // equal keys.
+        final String[] keys = new String[docs.size()];
+        Integer[] order = new Integer[docs.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = IndexBuilder.collationKey(docs.get(i).name());
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            public int compare(Integer i1, Integer i2) {
+                return keys[i1].compareTo(keys[i2]);
+            }
+        });
+        StringBuilder prefixes = new StringBuilder();
+        StringBuilder names = new StringBuilder();
+        StringBuilder targets = new StringBuilder();
+        String previous = "";
+        for (int i = 0; i < order.length; i++) {
+            Doc doc = docs.get(order[i]);
+            String name = doc.name();
+            int prefix = 0;
+            if (i % BLOCK_SIZE != 0) {
+                int max = Math.min(previous.length(), name.length());
+                while (prefix < max && previous.charAt(prefix) == name.charAt(prefix)) {
+                    prefix++;
+                }
+            }
+            if (i > 0) {
+                prefixes.append(',');
+                names.append(',');
+                targets.append(',');
+            }
+            prefixes.append(prefix);
+            appendString(names, name.substring(prefix));
+            appendTarget(targets, doc);
+            previous = name;
+        }
+        StringBuilder packages = new StringBuilder();
+        for (int i = 0; i < packageNames.size(); i++) {
+            if (i > 0) {
+                packages.append(',');
+            }
+            appendString(packages, packageNames.get(i));
+        }
+        StringBuilder sb = new StringBuilder();
+        String nl = DocletConstants.NL;
+        sb.append("searchIndexLoaded({").append(nl);
+        sb.append("\"blockSize\":").append(BLOCK_SIZE).append(',').append(nl);
+        sb.append("\"packages\":[").append(packages).append("],").append(nl);
+        sb.append("\"types\":[").append(types).append("],").append(nl);
+        sb.append("\"prefixes\":[").append(prefixes).append("],").append(nl);
+        sb.append("\"names\":[").append(names).append("],").append(nl);
+        sb.append("\"targets\":[").append(targets).append(']').append(nl);
+        sb.append("});").append(nl);
+        write(new RawHtml(sb.toString()));
+    }
+
+    /**
+     * Append what the given entry of the index is, as described above.
+     */
+    private void appendTarget(StringBuilder sb, Doc doc) {
+        if (doc instanceof PackageDoc) {
+            sb.append("[0,").append(getPackageId(((PackageDoc) doc).name())).append(']');
+        } else if (doc instanceof ClassDoc) {
+            sb.append("[1,").append(getTypeId((ClassDoc) doc)).append(']');
+        } else if (doc instanceof ExecutableMemberDoc) {
+            ExecutableMemberDoc emd = (ExecutableMemberDoc) doc;
+            sb.append("[3,").append(getTypeId(emd.containingClass())).append(',');
+            appendString(sb, emd.flatSignature());
+            sb.append(',');
+            appendString(sb, getName(getAnchor(emd)));
+            sb.append(']');
+        } else {
+            MemberDoc member = (MemberDoc) doc;
+            sb.append("[2,").append(getTypeId(member.containingClass()));
+            String anchor = getName(member.name());
+            if (!anchor.equals(member.name())) {
+                sb.append(',');
+                appendString(sb, anchor);
+            }
+            sb.append(']');
+        }
+    }
+
+    private int getPackageId(String name) {
+        Integer id = packageIds.get(name);
+        if (id == null) {
+            id = packageNames.size();
+            packageIds.put(name, id);
+            packageNames.add(name);
+        }
+        return id;
+    }
+
+    private int getTypeId(ClassDoc cd) {
+        Integer id = typeIds.get(cd);
+        if (id == null) {
+            id = typeIds.size();
+            typeIds.put(cd, id);
+            if (id > 0) {
+                types.append(',');
+            }
+            types.append('[').append(getPackageId(cd.containingPackage().name())).append(',');
+            appendString(types, cd.name());
+            types.append(']');
+        }
+        return id;
+    }
+
+    /**
+     * Append the given string as a JavaScript string literal.
+     */
+    private static void appendString(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20 || c >= 0x7f) {
+                sb.append("\\u");
+                String hex = Integer.toHexString(c);
+                for (int j = hex.length(); j < 4; j++) {
+                    sb.append('0');
+                }
+                sb.append(hex);
+            } else {
+                sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+}
@@ -89,21 +89,25 @@ public class SingleIndexWriter extends AbstractIndexWriter {
      */
     protected void generateIndexFile() throws IOException {
         String title = configuration.getText("doclet.Window_Single_Index");
-        Content body = getBody(true, getWindowTitle(title));
+        HtmlTree body = getBody(true, getWindowTitle(title));
         addTop(body);
         addNavLinks(true, body);
-        HtmlTree divTree = new HtmlTree(HtmlTag.DIV);
-        divTree.addStyle(HtmlStyle.contentContainer);
-        addLinksForIndexes(divTree);
+        HtmlStreamWriter out = startHtmlDocument(null, true, body);
+        out.startElement(HtmlTag.DIV, HtmlStyle.contentContainer);
+        Content links = new ContentBuilder();
+        addLinksForIndexes(links);
+        out.addContent(links);
         for (int i = 0; i < indexbuilder.elements().length; i++) {
             Character unicode = (Character)((indexbuilder.elements())[i]);
-            addContents(unicode, indexbuilder.getMemberList(unicode), divTree);
+            addContents(unicode, indexbuilder.getMemberList(unicode), out);
         }
-        addLinksForIndexes(divTree);
-        body.addContent(divTree);
-        addNavLinks(false, body);
-        addBottom(body);
-        printHtmlDocument(null, true, body);
+        out.addContent(links);
+        out.endElement();
+        Content bottom = new ContentBuilder();
+        addNavLinks(false, bottom);
+        addBottom(bottom);
+        out.addContent(bottom);
+        out.finish();
     }
 
     /**
@@ -204,7 +204,7 @@ public class SourceToHTMLConverter {
         Content htmlDocument = new HtmlDocument(htmlDocType, htmlTree);
         configuration.message.notice("doclet.Generating_0", path.getPath());
         DocFile df = DocFile.createFileForOutput(configuration, path);
-        Writer w = df.openWriter();
+        Writer w = Utf8PageWriter.open(configuration, df);
         try {
             htmlDocument.write(w, true);
         } finally {
@@ -26,7 +26,9 @@
 package com.outerthoughts.html5doclet.formats.html;
 
 import java.io.*;
+import java.util.*;
 
+import com.sun.javadoc.*;
 import com.outerthoughts.html5doclet.formats.html.markup.*;
 import com.outerthoughts.html5doclet.internal.toolkit.*;
 import com.outerthoughts.html5doclet.internal.toolkit.util.*;
@@ -57,6 +59,39 @@ public class SplitIndexWriter extends AbstractIndexWriter {
      */
     protected int next;
 
+    /**
+     * The pages of the index, in order.
+     */
+    private final List<IndexPage> pages;
+
+    /**
+     * True if some letter of the index is split into several pages.
+     */
+    private final boolean chunked;
+
+    /**
+     * A page of the split index: the entries from {@code from} to
+     * {@code to} of the member list of a Unicode character.
+     */
+    static class IndexPage {
+        final Character unicode;
+        final int from;
+        final int to;
+        /** The number of the page, starting at 1. */
+        final int number;
+        /** The pages of the same character, including this one. */
+        final List<IndexPage> parts;
+
+        IndexPage(Character unicode, int from, int to, int number,
+                List<IndexPage> parts) {
+            this.unicode = unicode;
+            this.from = from;
+            this.to = to;
+            this.number = number;
+            this.parts = parts;
+        }
+    }
+
     /**
      * Construct the SplitIndexWriter. Uses path to this file and relative path
      * from this file.
@@ -68,14 +103,27 @@ public class SplitIndexWriter extends AbstractIndexWriter {
                             DocPath path,
                             IndexBuilder indexbuilder,
                             int prev, int next) throws IOException {
+        this(configuration, path, indexbuilder,
+                getPages(indexbuilder, configuration.splitindexsize), prev, next);
+    }
+
+    private SplitIndexWriter(ConfigurationImpl configuration,
+                             DocPath path,
+                             IndexBuilder indexbuilder,
+                             List<IndexPage> pages,
+                             int prev, int next) throws IOException {
         super(configuration, path, indexbuilder);
         this.prev = prev;
         this.next = next;
+        this.pages = pages;
+        this.chunked = pages.size() > indexbuilder.elements().length;
     }
 
     /**
      * Generate separate index files, for each Unicode character, listing all
-     * the members starting with the particular unicode character.
+     * the members starting with the particular unicode character.  If
+     * "-splitindexsize" is used, the members of a character are split into
+     * several files of at most that many members.
      *
      * @param indexbuilder IndexBuilder built by {@link IndexBuilder}
      * @throws DocletAbortException
@@ -85,17 +133,17 @@ public class SplitIndexWriter extends AbstractIndexWriter {
         SplitIndexWriter indexgen;
         DocPath filename = DocPath.empty;
         DocPath path = DocPaths.INDEX_FILES;
+        List<IndexPage> pages = getPages(indexbuilder, configuration.splitindexsize);
         try {
-            for (int i = 0; i < indexbuilder.elements().length; i++) {
+            for (int i = 0; i < pages.size(); i++) {
                 int j = i + 1;
                 int prev = (j == 1)? -1: i;
-                int next = (j == indexbuilder.elements().length)? -1: j + 1;
+                int next = (j == pages.size())? -1: j + 1;
                 filename = DocPaths.indexN(j);
                 indexgen = new SplitIndexWriter(configuration,
                                                 path.resolve(filename),
-                                                indexbuilder, prev, next);
-                indexgen.generateIndexFile((Character)indexbuilder.
-                                                                 elements()[i]);
+                                                indexbuilder, pages, prev, next);
+                indexgen.generateIndexFile(pages.get(i));
                 indexgen.close();
             }
         } catch (IOException exc) {
@@ -106,28 +154,99 @@ public class SplitIndexWriter extends AbstractIndexWriter {
         }
     }
 
+    /**
+     * Return the pages of the index, with at most the given number of
+     * members on each page, or one page per character if the number is 0.
+     */
+    static List<IndexPage> getPages(IndexBuilder indexbuilder, int pageSize) {
+        List<IndexPage> pages = new ArrayList<IndexPage>();
+        for (Object element : indexbuilder.elements()) {
+            Character unicode = (Character) element;
+            int size = indexbuilder.getMemberList(unicode).size();
+            int count = (pageSize <= 0 || size <= pageSize) ?
+                1 : (size + pageSize - 1) / pageSize;
+            List<IndexPage> parts = new ArrayList<IndexPage>(count);
+            for (int part = 0; part < count; part++) {
+                // spread the members evenly over the pages of the character
+                int from = (int) ((long) size * part / count);
+                int to = (int) ((long) size * (part + 1) / count);
+                IndexPage page = new IndexPage(unicode, from, to,
+                        pages.size() + 1, parts);
+                parts.add(page);
+                pages.add(page);
+            }
+        }
+        return pages;
+    }
+
     /**
      * Generate the contents of each index file, with Header, Footer,
      * Member Field, Method and Constructor Description.
      *
-     * @param unicode Unicode character referring to the character for the
-     * index.
+     * @param page the page of the index to generate.
      */
-    protected void generateIndexFile(Character unicode) throws IOException {
+    protected void generateIndexFile(IndexPage page) throws IOException {
         String title = configuration.getText("doclet.Window_Split_Index",
-                unicode.toString());
-        Content body = getBody(true, getWindowTitle(title));
+                page.unicode.toString());
+        HtmlTree body = getBody(true, getWindowTitle(title));
         addTop(body);
         addNavLinks(true, body);
-        HtmlTree divTree = new HtmlTree(HtmlTag.DIV);
-        divTree.addStyle(HtmlStyle.contentContainer);
-        addLinksForIndexes(divTree);
-        addContents(unicode, indexbuilder.getMemberList(unicode), divTree);
-        addLinksForIndexes(divTree);
-        body.addContent(divTree);
-        addNavLinks(false, body);
-        addBottom(body);
-        printHtmlDocument(null, true, body);
+        HtmlStreamWriter out = startHtmlDocument(null, true, body);
+        out.startElement(HtmlTag.DIV, HtmlStyle.contentContainer);
+        Content links = new ContentBuilder();
+        addLinksForIndexes(links);
+        out.addContent(links);
+        List<Doc> memberlist = indexbuilder.getMemberList(page.unicode);
+        if (page.parts.size() > 1) {
+            out.addContent(getPagesTable(page, memberlist));
+        }
+        addContents(page.unicode, memberlist.subList(page.from, page.to), out);
+        out.addContent(links);
+        out.endElement();
+        Content bottom = new ContentBuilder();
+        addNavLinks(false, bottom);
+        addBottom(bottom);
+        out.addContent(bottom);
+        out.finish();
+    }
+
+    /**
+     * Get the table of the pages of a character whose members are split
+     * into several pages, with the first and last member of each page.
+     *
+     * @param page the page being generated
+     * @param memberlist the members of the character of the page
+     * @return a content tree for the table
+     */
+    protected Content getPagesTable(IndexPage page, List<Doc> memberlist) {
+        String unicode = page.unicode.toString();
+        Content table = HtmlTree.TABLE(HtmlStyle.overviewSummary, 0, 3, 0,
+                configuration.getText("doclet.Index_Pages_Table_Summary", unicode),
+                getTableCaption(getResource("doclet.Index_Pages", unicode)));
+        table.addContent(getSummaryTableHeader(new String[] {
+                configuration.getText("doclet.Index_Page"),
+                configuration.getText("doclet.Index_Entries")}, "col"));
+        Content tbody = new HtmlTree(HtmlTag.TBODY);
+        for (int i = 0; i < page.parts.size(); i++) {
+            IndexPage part = page.parts.get(i);
+            Content label = new StringContent(Integer.toString(i + 1));
+            Content tdPage = HtmlTree.TD(HtmlStyle.colFirst, (part == page) ?
+                    label : getHyperLink(DocPaths.indexN(part.number), label));
+            HtmlTree tdEntries = new HtmlTree(HtmlTag.TD);
+            tdEntries.addStyle(HtmlStyle.colLast);
+            tdEntries.addContent(memberlist.get(part.from).name());
+            tdEntries.addContent(" - ");
+            tdEntries.addContent(memberlist.get(part.to - 1).name());
+            HtmlTree tr = HtmlTree.TR(tdPage);
+            tr.addContent(tdEntries);
+            if (i%2 == 0)
+                tr.addStyle(HtmlStyle.altColor);
+            else
+                tr.addStyle(HtmlStyle.rowColor);
+            tbody.addContent(tr);
+        }
+        table.addContent(tbody);
+        return table;
     }
 
     /**
@@ -136,22 +255,24 @@ public class SplitIndexWriter extends AbstractIndexWriter {
      * @param contentTree the content tree to which the links for indexes will be added
      */
     protected void addLinksForIndexes(Content contentTree) {
-        Object[] unicodeChars = indexbuilder.elements();
-        for (int i = 0; i < unicodeChars.length; i++) {
-            int j = i + 1;
-            contentTree.addContent(getHyperLink(DocPaths.indexN(j),
-                    new StringContent(unicodeChars[i].toString())));
-            contentTree.addContent(getSpace());
+        for (IndexPage page : pages) {
+            if (page.parts.get(0) == page) {
+                contentTree.addContent(getHyperLink(DocPaths.indexN(page.number),
+                        new StringContent(page.unicode.toString())));
+                contentTree.addContent(getSpace());
+            }
         }
     }
 
     /**
-     * Get link to the previous unicode character.
+     * Get link to the previous unicode character, or to the previous page
+     * if characters are split into several pages.
      *
      * @return a content tree for the link
      */
     public Content getNavLinkPrevious() {
-        Content prevletterLabel = getResource("doclet.Prev_Letter");
+        Content prevletterLabel = getResource(chunked ?
+                "doclet.Prev_Page" : "doclet.Prev_Letter");
         if (prev == -1) {
             return HtmlTree.LI(prevletterLabel);
         }
@@ -163,12 +284,14 @@ public class SplitIndexWriter extends AbstractIndexWriter {
     }
 
     /**
-     * Get link to the next unicode character.
+     * Get link to the next unicode character, or to the next page if
+     * characters are split into several pages.
      *
      * @return a content tree for the link
      */
     public Content getNavLinkNext() {
-        Content nextletterLabel = getResource("doclet.Next_Letter");
+        Content nextletterLabel = getResource(chunked ?
+                "doclet.Next_Page" : "doclet.Next_Letter");
         if (next == -1) {
             return HtmlTree.LI(nextletterLabel);
         }
@@ -287,10 +287,11 @@ public class TagletWriterImpl extends TagletWriter {
      */
     public Content throwsTagOutput(ThrowsTag throwsTag) {
         ContentBuilder body = new ContentBuilder();
-        Content excName = (throwsTag.exceptionType() == null) ?
+        Type exceptionType = Util.exceptionType(throwsTag);
+        Content excName = (exceptionType == null) ?
                 new RawHtml(throwsTag.exceptionName()) :
                 htmlWriter.getLink(new LinkInfoImpl(configuration, LinkInfoImpl.Kind.MEMBER,
-                throwsTag.exceptionType()));
+                exceptionType));
         body.addContent(HtmlTree.CODE(excName));
         Content desc = htmlWriter.commentTagsToContent(throwsTag, null,
             throwsTag.inlineTags(), false);
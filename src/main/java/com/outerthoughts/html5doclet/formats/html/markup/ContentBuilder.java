@@ -38,6 +38,12 @@ import com.outerthoughts.html5doclet.internal.toolkit.Content;
 public class ContentBuilder extends Content {
     protected List<Content> contents = Collections.<Content>emptyList();
 
+    /**
+     * True once some content is known not to be empty.  Content is only
+     * ever added, never removed, so a builder that is not empty stays so.
+     */
+    private boolean nonEmpty;
+
     @Override
     public void addContent(Content content) {
         nullCheck(content);
@@ -61,6 +67,7 @@ public class ContentBuilder extends Content {
             contents.add(sc = new StringContent());
         }
         sc.addContent(text);
+        nonEmpty = true;
     }
 
     @Override
@@ -73,13 +80,23 @@ public class ContentBuilder extends Content {
 
     @Override
     public boolean isEmpty() {
+        if (nonEmpty)
+            return false;
         for (Content content: contents) {
-            if (!content.isEmpty())
+            if (!content.isEmpty()) {
+                nonEmpty = true;
                 return false;
+            }
         }
         return true;
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>As for {@link HtmlTree#charCount()}, the count walks the whole
+     * subtree on every call.
+     */
     @Override
     public int charCount() {
         int n = 0;
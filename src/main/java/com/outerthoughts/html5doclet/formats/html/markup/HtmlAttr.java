@@ -44,11 +44,13 @@ public enum HtmlAttr {
     CLEAR,
     COLS,
     CONTENT,
+    FOR,
     HREF,
     HTTP_EQUIV("http-equiv"),
     ID,
     LANG,
     NAME,
+    ONINPUT,
     ONLOAD,
     REL,
     ROWS,
@@ -32,7 +32,6 @@ import com.sun.javadoc.*;
 import com.outerthoughts.html5doclet.formats.html.ConfigurationImpl;
 import com.outerthoughts.html5doclet.formats.html.SectionName;
 import com.outerthoughts.html5doclet.internal.toolkit.*;
-import com.outerthoughts.html5doclet.internal.toolkit.util.DocFile;
 import com.outerthoughts.html5doclet.internal.toolkit.util.DocLink;
 import com.outerthoughts.html5doclet.internal.toolkit.util.DocPath;
 
@@ -65,8 +64,7 @@ public abstract class HtmlDocWriter extends HtmlWriter {
     public HtmlDocWriter(Configuration configuration, DocPath filename)
             throws IOException {
         super(configuration, filename);
-        configuration.message.notice("doclet.Generating_0",
-            DocFile.createFileForOutput(configuration, filename).getPath());
+        configuration.message.notice("doclet.Generating_0", file.getPath());
     }
 
     /**
@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2021, Thalia Nero
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  This particular file is
+ * designated as subject to the "Classpath" exception as provided in
+ * the LICENSE file that accompanies this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.outerthoughts.html5doclet.formats.html.markup;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.outerthoughts.html5doclet.internal.toolkit.Configuration;
+import com.outerthoughts.html5doclet.internal.toolkit.Content;
+
+/**
+ * The labels of the HTML writers, shared by all writers of a run.  Every
+ * writer used to look up the same few dozen labels in the resource bundles
+ * and build new content for each of them.
+ *
+ * <p>Each label is resolved once, on first use, into {@link RawHtml} that
+ * holds its escaped text.  Raw HTML cannot be changed, so a label can be
+ * added to any number of trees, unlike a {@link StringContent}, to which a
+ * tree appends the text added after it.
+ *
+ *  <p><b>This is NOT part of any supported API.
+ *  If you write code that depends on this, you do so at your own risk.
+ *  This code and its internal interfaces are subject to change or
+ *  deletion without notice.</b>
+ */
+public class HtmlLabels {
+
+    private final Configuration configuration;
+
+    private final ConcurrentMap<String,String> texts =
+            new ConcurrentHashMap<String,String>();
+
+    private final ConcurrentMap<String,Content> labels =
+            new ConcurrentHashMap<String,Content>();
+
+    private final ConcurrentMap<String,Content> nonBreakLabels =
+            new ConcurrentHashMap<String,Content>();
+
+    /**
+     * Construct an empty table.
+     *
+     * @param configuration the configuration of the run.
+     */
+    public HtmlLabels(Configuration configuration) {
+        this.configuration = configuration;
+    }
+
+    /**
+     * Return the text of the given key.
+     *
+     * @param key the key to look for in the configuration file
+     */
+    public String getText(String key) {
+        String text = texts.get(key);
+        if (text == null) {
+            text = configuration.getText(key);
+            texts.putIfAbsent(key, text);
+        }
+        return text;
+    }
+
+    /**
+     * Return the text of the given key, with the text of the given
+     * argument key as its argument.
+     *
+     * @param key    the key to look for in the configuration file
+     * @param argKey the key of the argument
+     */
+    public String getText(String key, String argKey) {
+        String cacheKey = key + '\0' + argKey;
+        String text = texts.get(cacheKey);
+        if (text == null) {
+            text = configuration.getText(key, getText(argKey));
+            texts.putIfAbsent(cacheKey, text);
+        }
+        return text;
+    }
+
+    /**
+     * Return the text of the given key, with the texts of the given
+     * argument keys as its arguments.
+     *
+     * @param key     the key to look for in the configuration file
+     * @param argKey1 the key of the first argument
+     * @param argKey2 the key of the second argument
+     */
+    public String getText(String key, String argKey1, String argKey2) {
+        String cacheKey = key + '\0' + argKey1 + '\0' + argKey2;
+        String text = texts.get(cacheKey);
+        if (text == null) {
+            text = configuration.getText(key, getText(argKey1), getText(argKey2));
+            texts.putIfAbsent(cacheKey, text);
+        }
+        return text;
+    }
+
+    /**
+     * Return the label for the given key.  The label must not be changed.
+     *
+     * @param key the key to look for in the configuration file
+     */
+    public Content getLabel(String key) {
+        Content label = labels.get(key);
+        if (label == null) {
+            label = new RawHtml(StringContent.escapeHtmlChars(getText(key)));
+            Content prev = labels.putIfAbsent(key, label);
+            if (prev != null) {
+                label = prev;
+            }
+        }
+        return label;
+    }
+
+    /**
+     * Return the label for the given key, with its spaces replaced by
+     * non-breaking spaces.  The label must not be changed.
+     *
+     * @param key the key to look for in the configuration file
+     */
+    public Content getNonBreakLabel(String key) {
+        Content label = nonBreakLabels.get(key);
+        if (label == null) {
+            label = new RawHtml(getLabel(key).toString().replace(" ", "&nbsp;"));
+            Content prev = nonBreakLabels.putIfAbsent(key, label);
+            if (prev != null) {
+                label = prev;
+            }
+        }
+        return label;
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2021, Thalia Nero
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  This particular file is
+ * designated as subject to the "Classpath" exception as provided in
+ * the LICENSE file that accompanies this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.outerthoughts.html5doclet.formats.html.markup;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+
+import com.outerthoughts.html5doclet.internal.toolkit.Content;
+import com.outerthoughts.html5doclet.internal.toolkit.util.DocletConstants;
+
+/**
+ * Writes an HTML document as a stream of start tags, content and end tags,
+ * instead of building the whole document as a tree first.  Content added
+ * to the stream is written at once, so a page can be written one finished
+ * subtree at a time and each subtree can be discarded as soon as it is
+ * written.
+ *
+ * <p>The output is the same as that of the equivalent {@link HtmlTree}:
+ * newlines are placed the same way, invalid content is dropped and an
+ * element that is not valid without content is only written once content
+ * is added to it.
+ *
+ *  <p><b>This is NOT part of any supported API.
+ *  If you write code that depends on this, you do so at your own risk.
+ *  This code and its internal interfaces are subject to change or
+ *  deletion without notice.</b>
+ */
+public class HtmlStreamWriter {
+
+    /**
+     * An element whose end tag has not been written yet.
+     */
+    private static class OpenElement {
+        final HtmlTree tree;
+        boolean started;
+
+        OpenElement(HtmlTree tree) {
+            this.tree = tree;
+        }
+    }
+
+    private final Writer out;
+
+    private final Deque<OpenElement> open = new ArrayDeque<OpenElement>();
+
+    private boolean atNewline;
+
+    /**
+     * Constructor.
+     *
+     * @param out the writer to which the document is written
+     * @param atNewline true if the writer is at the start of a line
+     */
+    public HtmlStreamWriter(Writer out, boolean atNewline) {
+        this.out = out;
+        this.atNewline = atNewline;
+    }
+
+    /**
+     * Starts an element.  The attributes and any content already added to
+     * the tree are written with the start tag, so the tree must not be
+     * changed afterwards.
+     *
+     * @param tree the element to start
+     */
+    public void startElement(HtmlTree tree) throws IOException {
+        open.push(new OpenElement(tree));
+        if (tree.isValid()) {
+            startPending();
+        }
+    }
+
+    /**
+     * Starts an element without attributes.
+     *
+     * @param tag the tag of the element to start
+     */
+    public void startElement(HtmlTag tag) throws IOException {
+        startElement(new HtmlTree(tag));
+    }
+
+    /**
+     * Starts an element with a style.
+     *
+     * @param tag the tag of the element to start
+     * @param style the style of the element
+     */
+    public void startElement(HtmlTag tag, HtmlStyle style) throws IOException {
+        HtmlTree tree = new HtmlTree(tag);
+        tree.addStyle(style);
+        startElement(tree);
+    }
+
+    /**
+     * Writes the given content into the innermost open element.
+     *
+     * @param content the content to be written
+     */
+    public void addContent(Content content) throws IOException {
+        if (content instanceof ContentBuilder) {
+            for (Content c : ((ContentBuilder) content).contents) {
+                addContent(c);
+            }
+        } else if (content == HtmlTree.EMPTY || content.isValid()) {
+            startPending();
+            atNewline = content.write(out, atNewline);
+        }
+    }
+
+    /**
+     * Writes the given text, escaped, into the innermost open element.
+     *
+     * @param text the text to be written
+     */
+    public void addContent(String text) throws IOException {
+        addContent(new StringContent(text));
+    }
+
+    /**
+     * Ends the innermost open element.  An element that was never started,
+     * because it is not valid without content and none was added, is
+     * dropped.
+     */
+    public void endElement() throws IOException {
+        OpenElement element = open.pop();
+        if (element.started) {
+            atNewline = element.tree.writeEndTag(out);
+        }
+    }
+
+    /**
+     * Ends all open elements and flushes the writer.
+     */
+    public void finish() throws IOException {
+        while (!open.isEmpty()) {
+            endElement();
+        }
+        out.flush();
+    }
+
+    /**
+     * Writes the start tags of the open elements that have not been
+     * started yet, outermost first.
+     */
+    private void startPending() throws IOException {
+        Iterator<OpenElement> iterator = open.descendingIterator();
+        while (iterator.hasNext()) {
+            OpenElement element = iterator.next();
+            if (!element.started) {
+                HtmlTree tree = element.tree;
+                if (!tree.isInline() && !atNewline)
+                    out.write(DocletConstants.NL);
+                tree.writeStartTag(out);
+                atNewline = tree.writeContent(out);
+                element.started = true;
+            }
+        }
+    }
+}
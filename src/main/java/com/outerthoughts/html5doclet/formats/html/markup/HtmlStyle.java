@@ -74,6 +74,7 @@ public enum HtmlStyle {
     nameValue,
     navBarCell1Rev,
     navList,
+    navSearch,
     overrideSpecifyLabel,
     overviewSummary,
     packageHierarchyLabel,
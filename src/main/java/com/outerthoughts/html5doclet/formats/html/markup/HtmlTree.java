@@ -133,6 +133,15 @@ public class HtmlTree extends Content {
             addContent(new StringContent(stringContent));
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The count is not cached: it walks the whole subtree on every
+     * call, since the nodes of a tree are often filled after they are
+     * added and are shared between trees.  The leaves count in constant
+     * time.  The doclet only counts small trees, such as the signature
+     * of a member.
+     */
     public int charCount() {
         int n = 0;
         for (Content c : content)
@@ -148,25 +157,7 @@ public class HtmlTree extends Content {
      * @return the original string with all of the HTML characters escaped.
      */
     private static String escapeHtmlChars(String s) {
-        for (int i = 0; i < s.length(); i++) {
-            char ch = s.charAt(i);
-            switch (ch) {
-                // only start building a new string if we need to
-                case '<': case '>': case '&':
-                    StringBuilder sb = new StringBuilder(s.substring(0, i));
-                    for ( ; i < s.length(); i++) {
-                        ch = s.charAt(i);
-                        switch (ch) {
-                            case '<': sb.append("&lt;");  break;
-                            case '>': sb.append("&gt;");  break;
-                            case '&': sb.append("&amp;"); break;
-                            default:  sb.append(ch);      break;
-                        }
-                    }
-                    return sb.toString();
-            }
-        }
-        return s;
+        return StringContent.escapeHtmlChars(s);
     }
 
     /**
@@ -195,15 +186,31 @@ public class HtmlTree extends Content {
         }
     }
 
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    /**
+     * Percent-encode the characters of a URL that may not be left
+     * unencoded.  The URL itself is returned if it has none.
+     */
     private static String encodeURL(String url) {
-        byte[] urlBytes = url.getBytes(Charset.forName("UTF-8"));
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < urlBytes.length; i++) {
-            int c = urlBytes[i];
-            if (NONENCODING_CHARS.get(c & 0xFF)) {
+        int length = url.length();
+        int i = 0;
+        char ch;
+        while (i < length && (ch = url.charAt(i)) < 0x80 && NONENCODING_CHARS.get(ch)) {
+            i++;
+        }
+        if (i == length) {
+            return url;
+        }
+        byte[] urlBytes = url.substring(i).getBytes(StandardCharsets.UTF_8);
+        StringBuilder sb = new StringBuilder(length + 2 * urlBytes.length);
+        sb.append(url, 0, i);
+        for (byte b : urlBytes) {
+            int c = b & 0xFF;
+            if (NONENCODING_CHARS.get(c)) {
                 sb.append((char) c);
             } else {
-                sb.append(String.format("%%%02X", c & 0xFF));
+                sb.append('%').append(HEX_DIGITS[c >> 4]).append(HEX_DIGITS[c & 0xF]);
             }
         }
         return sb.toString();
@@ -787,6 +794,8 @@ public class HtmlTree extends Content {
                 return (!hasContent());
             case IMG :
                 return (hasAttr(HtmlAttr.SRC) && hasAttr(HtmlAttr.ALT) && !hasContent());
+            case INPUT :
+                return (hasAttr(HtmlAttr.TYPE) && !hasContent());
             case LINK :
                 return (hasAttr(HtmlAttr.HREF) && !hasContent());
             case META :
@@ -815,9 +824,17 @@ public class HtmlTree extends Content {
     public boolean write(Writer out, boolean atNewline) throws IOException {
         if (!isInline() && !atNewline)
             out.write(DocletConstants.NL);
-        String tagString = htmlTag.toString();
+        writeStartTag(out);
+        writeContent(out);
+        return writeEndTag(out);
+    }
+
+    /**
+     * Writes the start tag and the attributes of the element.
+     */
+    void writeStartTag(Writer out) throws IOException {
         out.write("<");
-        out.write(tagString);
+        out.write(htmlTag.toString());
         Iterator<HtmlAttr> iterator = attrs.keySet().iterator();
         HtmlAttr key;
         String value;
@@ -833,12 +850,30 @@ public class HtmlTree extends Content {
             }
         }
         out.write(">");
+    }
+
+    /**
+     * Writes the content of the element.
+     *
+     * @return true if the content ends with a newline
+     */
+    boolean writeContent(Writer out) throws IOException {
         boolean nl = false;
         for (Content c : content)
             nl = c.write(out, nl);
+        return nl;
+    }
+
+    /**
+     * Writes the end tag of the element, if it is required, and the newline
+     * that follows a block element.
+     *
+     * @return true if the output now ends with a newline
+     */
+    boolean writeEndTag(Writer out) throws IOException {
         if (htmlTag.endTagRequired()) {
             out.write("</");
-            out.write(tagString);
+            out.write(htmlTag.toString());
             out.write(">");
         }
         if (!isInline()) {
@@ -30,6 +30,7 @@ import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import com.outerthoughts.html5doclet.formats.html.ConfigurationImpl;
 import com.outerthoughts.html5doclet.internal.toolkit.*;
 import com.outerthoughts.html5doclet.internal.toolkit.util.*;
 
@@ -164,12 +165,22 @@ public class HtmlWriter {
 
     public final Content descfrmInterfaceLabel;
 
-    private final Writer writer;
+    /**
+     * The file of the page.
+     */
+    protected final DocFile file;
+
+    /**
+     * The writer of the page, which is only open while the page is
+     * printed.
+     */
+    private Writer writer;
 
     private Content script;
 
     /**
-     * Constructor.
+     * Constructor.  The output is not opened until the page is printed,
+     * so that pages that are still being built hold no open files.
      *
      * @param path The directory path to be created for this file
      *             or null if none to be created.
@@ -180,70 +191,102 @@ public class HtmlWriter {
      */
     public HtmlWriter(Configuration configuration, DocPath path)
             throws IOException, UnsupportedEncodingException {
-        writer = DocFile.createFileForOutput(configuration, path).openWriter();
+        this.file = DocFile.createFileForOutput(configuration, path);
         this.configuration = configuration;
         this.memberDetailsListPrinted = false;
+        HtmlLabels labels = configuration instanceof ConfigurationImpl ?
+            ((ConfigurationImpl) configuration).labels : new HtmlLabels(configuration);
         profileTableHeader = new String[] {
-            configuration.getText("doclet.Profile"),
-            configuration.getText("doclet.Description")
+            labels.getText("doclet.Profile"),
+            labels.getText("doclet.Description")
         };
         packageTableHeader = new String[] {
-            configuration.getText("doclet.Package"),
-            configuration.getText("doclet.Description")
+            labels.getText("doclet.Package"),
+            labels.getText("doclet.Description")
         };
-        useTableSummary = configuration.getText("doclet.Use_Table_Summary",
-                configuration.getText("doclet.packages"));
-        modifierTypeHeader = configuration.getText("doclet.0_and_1",
-                configuration.getText("doclet.Modifier"),
-                configuration.getText("doclet.Type"));
-        overviewLabel = getResource("doclet.Overview");
+        useTableSummary = labels.getText("doclet.Use_Table_Summary", "doclet.packages");
+        modifierTypeHeader = labels.getText("doclet.0_and_1", "doclet.Modifier", "doclet.Type");
+        overviewLabel = labels.getLabel("doclet.Overview");
         defaultPackageLabel = new StringContent(DocletConstants.DEFAULT_PACKAGE_NAME);
-        packageLabel = getResource("doclet.Package");
-        profileLabel = getResource("doclet.Profile");
-        useLabel = getResource("doclet.navClassUse");
-        prevLabel = getResource("doclet.Prev");
-        nextLabel = getResource("doclet.Next");
-        prevclassLabel = getNonBreakResource("doclet.Prev_Class");
-        nextclassLabel = getNonBreakResource("doclet.Next_Class");
-        summaryLabel = getResource("doclet.Summary");
-        detailLabel = getResource("doclet.Detail");
-        framesLabel = getResource("doclet.Frames");
-        noframesLabel = getNonBreakResource("doclet.No_Frames");
-        treeLabel = getResource("doclet.Tree");
-        classLabel = getResource("doclet.Class");
-        deprecatedLabel = getResource("doclet.navDeprecated");
-        deprecatedPhrase = getResource("doclet.Deprecated");
-        allclassesLabel = getNonBreakResource("doclet.All_Classes");
-        allpackagesLabel = getNonBreakResource("doclet.All_Packages");
-        allprofilesLabel = getNonBreakResource("doclet.All_Profiles");
-        indexLabel = getResource("doclet.Index");
-        helpLabel = getResource("doclet.Help");
-        seeLabel = getResource("doclet.See");
-        descriptionLabel = getResource("doclet.Description");
-        prevpackageLabel = getNonBreakResource("doclet.Prev_Package");
-        nextpackageLabel = getNonBreakResource("doclet.Next_Package");
-        prevprofileLabel = getNonBreakResource("doclet.Prev_Profile");
-        nextprofileLabel = getNonBreakResource("doclet.Next_Profile");
-        packagesLabel = getResource("doclet.Packages");
-        profilesLabel = getResource("doclet.Profiles");
-        methodDetailsLabel = getResource("doclet.Method_Detail");
-        annotationTypeDetailsLabel = getResource("doclet.Annotation_Type_Member_Detail");
-        fieldDetailsLabel = getResource("doclet.Field_Detail");
-        propertyDetailsLabel = getResource("doclet.Property_Detail");
-        constructorDetailsLabel = getResource("doclet.Constructor_Detail");
-        enumConstantsDetailsLabel = getResource("doclet.Enum_Constant_Detail");
-        specifiedByLabel = getResource("doclet.Specified_By");
-        overridesLabel = getResource("doclet.Overrides");
-        descfrmClassLabel = getResource("doclet.Description_From_Class");
-        descfrmInterfaceLabel = getResource("doclet.Description_From_Interface");
+        packageLabel = labels.getLabel("doclet.Package");
+        profileLabel = labels.getLabel("doclet.Profile");
+        useLabel = labels.getLabel("doclet.navClassUse");
+        prevLabel = labels.getLabel("doclet.Prev");
+        nextLabel = labels.getLabel("doclet.Next");
+        prevclassLabel = labels.getNonBreakLabel("doclet.Prev_Class");
+        nextclassLabel = labels.getNonBreakLabel("doclet.Next_Class");
+        summaryLabel = labels.getLabel("doclet.Summary");
+        detailLabel = labels.getLabel("doclet.Detail");
+        framesLabel = labels.getLabel("doclet.Frames");
+        noframesLabel = labels.getNonBreakLabel("doclet.No_Frames");
+        treeLabel = labels.getLabel("doclet.Tree");
+        classLabel = labels.getLabel("doclet.Class");
+        deprecatedLabel = labels.getLabel("doclet.navDeprecated");
+        deprecatedPhrase = labels.getLabel("doclet.Deprecated");
+        allclassesLabel = labels.getNonBreakLabel("doclet.All_Classes");
+        allpackagesLabel = labels.getNonBreakLabel("doclet.All_Packages");
+        allprofilesLabel = labels.getNonBreakLabel("doclet.All_Profiles");
+        indexLabel = labels.getLabel("doclet.Index");
+        helpLabel = labels.getLabel("doclet.Help");
+        seeLabel = labels.getLabel("doclet.See");
+        descriptionLabel = labels.getLabel("doclet.Description");
+        prevpackageLabel = labels.getNonBreakLabel("doclet.Prev_Package");
+        nextpackageLabel = labels.getNonBreakLabel("doclet.Next_Package");
+        prevprofileLabel = labels.getNonBreakLabel("doclet.Prev_Profile");
+        nextprofileLabel = labels.getNonBreakLabel("doclet.Next_Profile");
+        packagesLabel = labels.getLabel("doclet.Packages");
+        profilesLabel = labels.getLabel("doclet.Profiles");
+        methodDetailsLabel = labels.getLabel("doclet.Method_Detail");
+        annotationTypeDetailsLabel = labels.getLabel("doclet.Annotation_Type_Member_Detail");
+        fieldDetailsLabel = labels.getLabel("doclet.Field_Detail");
+        propertyDetailsLabel = labels.getLabel("doclet.Property_Detail");
+        constructorDetailsLabel = labels.getLabel("doclet.Constructor_Detail");
+        enumConstantsDetailsLabel = labels.getLabel("doclet.Enum_Constant_Detail");
+        specifiedByLabel = labels.getLabel("doclet.Specified_By");
+        overridesLabel = labels.getLabel("doclet.Overrides");
+        descfrmClassLabel = labels.getLabel("doclet.Description_From_Class");
+        descfrmInterfaceLabel = labels.getLabel("doclet.Description_From_Interface");
     }
 
+    /**
+     * Opens the output, writes the given document to it and closes it.
+     *
+     * @param c the document to be written
+     */
     public void write(Content c) throws IOException {
-        c.write(writer, true);
+        try {
+            c.write(openWriter(), true);
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * Opens the output and returns a stream that writes to the start of it.
+     * The output stays open until {@link #close()} is called.
+     */
+    public HtmlStreamWriter openStream() throws IOException {
+        return new HtmlStreamWriter(openWriter(), true);
     }
 
+    /**
+     * Closes the output, if it is open.
+     */
     public void close() throws IOException {
-        writer.close();
+        if (writer != null) {
+            try {
+                writer.close();
+            } finally {
+                writer = null;
+            }
+        }
+    }
+
+    private Writer openWriter() throws IOException {
+        if (writer == null) {
+            writer = Utf8PageWriter.open(configuration, file);
+        }
+        return writer;
     }
 
     /**
@@ -33,6 +33,7 @@ import com.outerthoughts.html5doclet.internal.toolkit.util.*;
 
 /**
  * Class for generating raw HTML content to be added to HTML pages of javadoc output.
+ * Raw HTML content is immutable, so one instance may be shared by many trees.
  *
  *  <p><b>This is NOT part of any supported API.
  *  If you write code that depends on this, you do so at your own risk.
@@ -43,7 +44,14 @@ import com.outerthoughts.html5doclet.internal.toolkit.util.*;
  */
 public class RawHtml extends Content {
 
-    private String rawHtmlContent;
+    private final String rawHtmlContent;
+
+    /**
+     * The number of characters of text in the content, or -1 until it
+     * is first asked for.  The count is the same for every thread that
+     * computes it, so it needs no synchronization.
+     */
+    private int charCount = -1;
 
     public static final Content nbsp = new RawHtml("&nbsp;");
 
@@ -99,7 +107,11 @@ public class RawHtml extends Content {
 
     @Override
     public int charCount() {
-        return charCount(rawHtmlContent);
+        int n = charCount;
+        if (n < 0) {
+            charCount = n = charCount(rawHtmlContent);
+        }
+        return n;
     }
 
     static int charCount(String htmlText) {
@@ -43,13 +43,39 @@ import com.outerthoughts.html5doclet.internal.toolkit.util.*;
  */
 public class StringContent extends Content {
 
-    private StringBuilder stringContent;
+    /**
+     * The escaped form of each ASCII character that must be escaped, or
+     * null for the characters that are written as they are.
+     */
+    private static final String[] ESCAPES = new String[128];
+
+    static {
+        ESCAPES['<'] = "&lt;";
+        ESCAPES['>'] = "&gt;";
+        ESCAPES['&'] = "&amp;";
+    }
+
+    /**
+     * The escaped content, unless more content was added since it was
+     * last read, in which case it is the start of {@code pending}.
+     */
+    private String stringContent = "";
+
+    /**
+     * The escaped content, while content is being added, or null.
+     */
+    private StringBuilder pending;
+
+    /**
+     * The number of characters of the content before it was escaped,
+     * which is the number of characters it shows in a page.
+     */
+    private int charCount;
 
     /**
      * Constructor to construct StringContent object.
      */
     public StringContent() {
-        stringContent = new StringBuilder();
     }
 
     /**
@@ -58,7 +84,6 @@ public class StringContent extends Content {
      * @param initialContent initial content for the object
      */
     public StringContent(String initialContent) {
-        stringContent = new StringBuilder();
         appendChars(initialContent);
     }
 
@@ -91,12 +116,12 @@ public class StringContent extends Content {
      */
     @Override
     public boolean isEmpty() {
-        return (stringContent.length() == 0);
+        return (charCount == 0);
     }
 
     @Override
     public int charCount() {
-        return RawHtml.charCount(stringContent.toString());
+        return charCount;
     }
 
     /**
@@ -104,7 +129,11 @@ public class StringContent extends Content {
      */
     @Override
     public String toString() {
-        return stringContent.toString();
+        if (pending != null) {
+            stringContent = pending.toString();
+            pending = null;
+        }
+        return stringContent;
     }
 
     /**
@@ -112,20 +141,54 @@ public class StringContent extends Content {
      */
     @Override
     public boolean write(Writer out, boolean atNewline) throws IOException {
-        String s = stringContent.toString();
+        String s = toString();
         out.write(s);
         return s.endsWith(DocletConstants.NL);
     }
 
     private void appendChars(String s) {
-        for (int i = 0; i < s.length(); i++) {
+        String escaped = escapeHtmlChars(s);
+        if (pending != null) {
+            pending.append(escaped);
+        } else if (stringContent.isEmpty()) {
+            stringContent = escaped;
+        } else if (!escaped.isEmpty()) {
+            pending = new StringBuilder(stringContent.length() + escaped.length() + 16);
+            pending.append(stringContent).append(escaped);
+        }
+        charCount += s.length();
+    }
+
+    /**
+     * Given a string, escape all special html characters and
+     * return the result.  The string itself is returned if it has
+     * no characters to escape.
+     *
+     * @param s The string to check.
+     * @return the original string with all of the HTML characters escaped.
+     */
+    static String escapeHtmlChars(String s) {
+        int length = s.length();
+        int i = 0;
+        while (i < length && !mustEscape(s.charAt(i))) {
+            i++;
+        }
+        if (i == length) {
+            return s;
+        }
+        StringBuilder sb = new StringBuilder(length + 16);
+        int start = 0;
+        for ( ; i < length; i++) {
             char ch = s.charAt(i);
-            switch (ch) {
-                case '<': stringContent.append("&lt;");  break;
-                case '>': stringContent.append("&gt;");  break;
-                case '&': stringContent.append("&amp;"); break;
-                default:  stringContent.append(ch);      break;
+            if (mustEscape(ch)) {
+                sb.append(s, start, i).append(ESCAPES[ch]);
+                start = i + 1;
             }
         }
+        return sb.append(s, start, length).toString();
+    }
+
+    private static boolean mustEscape(char ch) {
+        return ch < ESCAPES.length && ESCAPES[ch] != null;
     }
 }
@@ -0,0 +1,277 @@
+/*
+ * Copyright (C) 2021, Thalia Nero
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  This particular file is
+ * designated as subject to the "Classpath" exception as provided in
+ * the LICENSE file that accompanies this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.outerthoughts.html5doclet.formats.html.markup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import com.outerthoughts.html5doclet.internal.toolkit.Configuration;
+import com.outerthoughts.html5doclet.internal.toolkit.util.DocFile;
+
+/**
+ * Writes a page encoded as UTF-8 into a byte buffer.  A page that fits in
+ * the buffer is written to the file in a single write when it is closed.
+ * A larger page, such as a page of the index or of the uses of a class,
+ * is written through to the file each time the buffer fills up, so that
+ * the streamed pages are never held whole in memory.
+ *
+ * <p>Pages are written as many short strings: tag names, attributes,
+ * text.  The buffered writer and stream encoder of {@link DocFile#openWriter()}
+ * copy each of them through a char buffer and a byte buffer.  This writer
+ * encodes runs of ASCII characters straight into its byte buffer, and the
+ * rest as the stream encoder would, replacing unpaired surrogates with
+ * '?'.  The buffer is kept by the thread for its next page, unless it grew
+ * very large.
+ *
+ *  <p><b>This is NOT part of any supported API.
+ *  If you write code that depends on this, you do so at your own risk.
+ *  This code and its internal interfaces are subject to change or
+ *  deletion without notice.</b>
+ */
+public class Utf8PageWriter extends Writer {
+
+    private static final int INITIAL_CAPACITY = 16 * 1024;
+
+    /**
+     * The largest buffer kept by a thread after its page is closed.
+     */
+    private static final int MAX_RETAINED_CAPACITY = 1024 * 1024;
+
+    /**
+     * The number of buffered bytes above which they are written through
+     * to the file.
+     */
+    private static final int WRITE_THROUGH_THRESHOLD = 256 * 1024;
+
+    /**
+     * The buffer of each thread, while no page of the thread is open.
+     */
+    private static final ThreadLocal<byte[]> BUFFERS = new ThreadLocal<byte[]>();
+
+    private final DocFile file;
+
+    /**
+     * The stream of the file, opened once the page outgrows the buffer.
+     */
+    private OutputStream out;
+
+    private byte[] buf;
+
+    private int count;
+
+    /**
+     * A high surrogate waiting for its low surrogate, or 0.
+     */
+    private char pendingHighSurrogate;
+
+    /**
+     * Open a writer for the given page, using the encoding (if any) given
+     * in the doclet configuration.  Pages are written by this class when
+     * the encoding is UTF-8, and by {@link DocFile#openWriter()} otherwise.
+     *
+     * @param configuration the configuration of the run.
+     * @param file the file of the page.
+     */
+    public static Writer open(Configuration configuration, DocFile file) throws IOException {
+        Charset charset = configuration.docencoding == null ?
+            Charset.defaultCharset() : Charset.forName(configuration.docencoding);
+        if (charset.equals(StandardCharsets.UTF_8)) {
+            return new Utf8PageWriter(file);
+        }
+        return file.openWriter();
+    }
+
+    private Utf8PageWriter(DocFile file) {
+        this.file = file;
+        byte[] b = BUFFERS.get();
+        if (b != null) {
+            BUFFERS.set(null);
+        } else {
+            b = new byte[INITIAL_CAPACITY];
+        }
+        this.buf = b;
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        ensureOpen();
+        encode((char) c);
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        ensureOpen();
+        int end = off + len;
+        int i = off;
+        while (i < end) {
+            if (pendingHighSurrogate == 0) {
+                reserve(end - i);
+                byte[] b = buf;
+                int n = count;
+                char c;
+                while (i < end && (c = cbuf[i]) < 0x80) {
+                    b[n++] = (byte) c;
+                    i++;
+                }
+                count = n;
+            }
+            if (i < end) {
+                encode(cbuf[i++]);
+            }
+        }
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        ensureOpen();
+        int end = off + len;
+        int i = off;
+        while (i < end) {
+            if (pendingHighSurrogate == 0) {
+                reserve(end - i);
+                byte[] b = buf;
+                int n = count;
+                char c;
+                while (i < end && (c = str.charAt(i)) < 0x80) {
+                    b[n++] = (byte) c;
+                    i++;
+                }
+                count = n;
+            }
+            if (i < end) {
+                encode(str.charAt(i++));
+            }
+        }
+    }
+
+    /**
+     * Writes the buffered bytes through to the file if the page is already
+     * being written through, and does nothing otherwise, since a small
+     * page is written when it is closed.
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        if (out != null) {
+            writeThrough();
+            out.flush();
+        }
+    }
+
+    /**
+     * Writes the page to its file.
+     */
+    @Override
+    public void close() throws IOException {
+        if (buf == null) {
+            return;
+        }
+        if (pendingHighSurrogate != 0) {
+            pendingHighSurrogate = 0;
+            ensureCapacity(count + 1);
+            buf[count++] = '?';
+        }
+        byte[] b = buf;
+        try {
+            if (out == null) {
+                out = file.openOutputStream();
+            }
+            try {
+                out.write(b, 0, count);
+            } finally {
+                out.close();
+            }
+        } finally {
+            buf = null;
+            out = null;
+            if (b.length <= MAX_RETAINED_CAPACITY) {
+                BUFFERS.set(b);
+            }
+        }
+    }
+
+    private void encode(char c) throws IOException {
+        reserve(4);
+        byte[] b = buf;
+        if (pendingHighSurrogate != 0) {
+            char high = pendingHighSurrogate;
+            pendingHighSurrogate = 0;
+            if (Character.isLowSurrogate(c)) {
+                int cp = Character.toCodePoint(high, c);
+                b[count++] = (byte) (0xf0 | (cp >> 18));
+                b[count++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+                b[count++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+                b[count++] = (byte) (0x80 | (cp & 0x3f));
+                return;
+            }
+            b[count++] = '?';
+        }
+        if (c < 0x80) {
+            b[count++] = (byte) c;
+        } else if (c < 0x800) {
+            b[count++] = (byte) (0xc0 | (c >> 6));
+            b[count++] = (byte) (0x80 | (c & 0x3f));
+        } else if (Character.isHighSurrogate(c)) {
+            pendingHighSurrogate = c;
+        } else if (Character.isLowSurrogate(c)) {
+            b[count++] = '?';
+        } else {
+            b[count++] = (byte) (0xe0 | (c >> 12));
+            b[count++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+            b[count++] = (byte) (0x80 | (c & 0x3f));
+        }
+    }
+
+    /**
+     * Make room for the given number of bytes, writing the buffered bytes
+     * through to the file first if the buffer would outgrow the threshold.
+     */
+    private void reserve(int n) throws IOException {
+        if (count > 0 && count + n > WRITE_THROUGH_THRESHOLD) {
+            writeThrough();
+        }
+        ensureCapacity(count + n);
+    }
+
+    private void writeThrough() throws IOException {
+        if (out == null) {
+            out = file.openOutputStream();
+        }
+        out.write(buf, 0, count);
+        count = 0;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > buf.length) {
+            byte[] b = new byte[Math.max(capacity, buf.length * 2)];
+            System.arraycopy(buf, 0, b, 0, count);
+            buf = b;
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (buf == null) {
+            throw new IOException("Stream closed");
+        }
+    }
+}
@@ -25,6 +25,10 @@
 
 package com.outerthoughts.html5doclet.internal.toolkit;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
 import com.sun.javadoc.*;
 import com.outerthoughts.html5doclet.internal.toolkit.builders.*;
 import com.outerthoughts.html5doclet.internal.toolkit.util.*;
@@ -46,6 +50,11 @@ public abstract class AbstractDoclet {
      */
     public Configuration configuration;
 
+    /**
+     * The number of messages listed by the "-xtimeline" option.
+     */
+    private static final int MESSAGE_COUNT_LIMIT = 10;
+
     /**
      * The only doclet that may use this toolkit is {@value}
      */
@@ -97,10 +106,28 @@ public abstract class AbstractDoclet {
         } catch (Exception exc) {
             exc.printStackTrace();
             return false;
+        } finally {
+            release();
         }
         return true;
     }
 
+    /**
+     * Release the caches of the run, which hold on to the documented
+     * classes, once the documentation is generated.
+     */
+    private void release() {
+        if (configuration.outputSink != null) {
+            try {
+                configuration.outputSink.close();
+            } catch (IOException e) {
+                // the run failed already, the error was reported
+            }
+        }
+        configuration.visibleMemberIndex.clear();
+        DocFile.release(configuration);
+    }
+
     /**
      * Indicate that this doclet supports the 1.5 language features.
      * @return JAVA_1_5, indicating that the new features are supported.
@@ -124,7 +151,7 @@ public abstract class AbstractDoclet {
      *
      * @see com.sun.javadoc.RootDoc
      */
-    private void startGeneration(RootDoc root) throws Configuration.Fault, Exception {
+    private void startGeneration(final RootDoc root) throws Configuration.Fault, Exception {
         if (root.classes().length == 0) {
             configuration.message.
                 error("doclet.No_Public_Classes_To_Document");
@@ -133,31 +160,148 @@ public abstract class AbstractDoclet {
         configuration.setOptions();
         configuration.getDocletSpecificMsg().notice("doclet.build_version",
             configuration.getDocletSpecificBuildDate());
-        ClassTree classtree = new ClassTree(configuration, configuration.nodeprecated);
-
-        generateClassFiles(root, classtree);
-        Util.copyDocFiles(configuration, DocPaths.DOC_FILES);
+        configuration.getBuilderFactory().validateLayout();
+        if (!configuration.archive.isEmpty()) {
+            try {
+                configuration.outputSink = new ArchiveOutputSink(new File(configuration.archive),
+                    ArchiveOutputSink.Format.forFile(configuration.archive));
+            } catch (IOException e) {
+                throw new DocletAbortException(e);
+            }
+        } else if (configuration.skipunchanged) {
+            configuration.outputSink = new UnchangedOutputSink(configuration);
+        }
+        configuration.docIndex = new DocIndex(configuration);
+        if (configuration.incremental) {
+            configuration.pageManifest = new PageManifest(configuration);
+        }
+        final ClassTree classtree = new ClassTree(configuration, configuration.nodeprecated);
 
-        PackageListWriter.generate(configuration);
-        generatePackageFiles(classtree);
-        generateProfileFiles();
+        StageGraph stages = new StageGraph();
+        stages.addStage("classes", new StageGraph.Stage() {
+            public void run() {
+                generateClassFiles(root, classtree);
+            }
+        });
+        stages.addStage("doc-files", new StageGraph.Stage() {
+            public void run() {
+                Util.copyDocFiles(configuration, DocPaths.DOC_FILES);
+            }
+        });
+        stages.addStage("package-list", new StageGraph.Stage() {
+            public void run() throws Exception {
+                PackageListWriter.generate(configuration);
+            }
+        });
+        stages.addStage("packages", new StageGraph.Stage() {
+            public void run() throws Exception {
+                generatePackageFiles(classtree);
+            }
+        });
+        // The profile pages copy the same package doc-files.
+        stages.addStage("profiles", new StageGraph.Stage() {
+            public void run() throws Exception {
+                generateProfileFiles();
+            }
+        }, "packages");
+        addOtherFileStages(stages, root, classtree);
 
-        generateOtherFiles(root, classtree);
+        if (configuration.threads > 1) {
+            new DocPreloader(configuration).preload(root);
+        }
+        stages.run(configuration.threads);
+        if (configuration.pageManifest != null) {
+            configuration.pageManifest.write();
+            configuration.message.notice("doclet.Incremental_skipped",
+                String.valueOf(configuration.pageManifest.getSkippedCount()));
+        }
+        if (configuration.outputSink != null) {
+            try {
+                configuration.outputSink.close();
+            } catch (IOException e) {
+                throw new DocletAbortException(e);
+            }
+            if (configuration.outputSink instanceof UnchangedOutputSink) {
+                configuration.message.notice("doclet.Unchanged_skipped", String.valueOf(
+                    ((UnchangedOutputSink) configuration.outputSink).getSkippedCount()));
+            }
+        }
+        if (configuration.timeline) {
+            printTimeline(stages);
+        }
         configuration.tagletManager.printReport();
     }
 
     /**
-     * Generate additional documentation that is added to the API documentation.
+     * Print when each stage of the generation ran and how long it took.
+     */
+    private void printTimeline(StageGraph stages) {
+        configuration.message.notice("doclet.Timeline_header");
+        for (StageGraph.Timing timing : stages.getTimeline()) {
+            configuration.message.notice("doclet.Timeline_stage", timing.name,
+                String.valueOf(timing.startMillis), String.valueOf(timing.endMillis),
+                String.valueOf(timing.endMillis - timing.startMillis), timing.thread);
+        }
+        printMessageCounts();
+        printStatistics();
+    }
+
+    /**
+     * Print statistics of the doclet with the timeline.  The default
+     * implementation prints nothing.
+     */
+    protected void printStatistics() {
+    }
+
+    /**
+     * Print the messages that were requested most often.
+     */
+    private void printMessageCounts() {
+        Map<String,Long> counts = new HashMap<String,Long>(configuration.message.getRequestCounts());
+        for (Map.Entry<String,Long> entry :
+                configuration.getDocletSpecificMsg().getRequestCounts().entrySet()) {
+            Long count = counts.get(entry.getKey());
+            counts.put(entry.getKey(),
+                count == null ? entry.getValue() : count + entry.getValue());
+        }
+        List<Map.Entry<String,Long>> entries = new ArrayList<Map.Entry<String,Long>>(counts.entrySet());
+        Collections.sort(entries, new Comparator<Map.Entry<String,Long>>() {
+            public int compare(Map.Entry<String,Long> e1, Map.Entry<String,Long> e2) {
+                int result = e2.getValue().compareTo(e1.getValue());
+                return result != 0 ? result : e1.getKey().compareTo(e2.getKey());
+            }
+        });
+        configuration.message.notice("doclet.Message_counts_header");
+        for (Map.Entry<String,Long> entry : entries.subList(0, Math.min(MESSAGE_COUNT_LIMIT, entries.size()))) {
+            configuration.message.notice("doclet.Message_count", entry.getKey(),
+                String.valueOf(entry.getValue()));
+        }
+    }
+
+    /**
+     * Add the stages that generate additional documentation that is added
+     * to the API documentation.  Stages added without dependencies may run
+     * concurrently with the class, package and profile documentation.
      *
+     * @param stages    the graph to add the stages to.
      * @param root      the RootDoc of source to document.
      * @param classtree the data structure representing the class tree.
      */
-    protected void generateOtherFiles(RootDoc root, ClassTree classtree) throws Exception {
-        BuilderFactory builderFactory = configuration.getBuilderFactory();
-        AbstractBuilder constantsSummaryBuilder = builderFactory.getConstantsSummaryBuider();
-        constantsSummaryBuilder.build();
-        AbstractBuilder serializedFormBuilder = builderFactory.getSerializedFormBuilder();
-        serializedFormBuilder.build();
+    protected void addOtherFileStages(StageGraph stages, RootDoc root,
+            ClassTree classtree) throws Exception {
+        final BuilderFactory builderFactory = configuration.getBuilderFactory();
+        stages.addStage("constants", new StageGraph.Stage() {
+            public void run() throws Exception {
+                AbstractBuilder constantsSummaryBuilder = builderFactory.getConstantsSummaryBuider();
+                constantsSummaryBuilder.build();
+            }
+        });
+        stages.addStage("serialized-form", new StageGraph.Stage() {
+            public void run() throws Exception {
+                AbstractBuilder serializedFormBuilder = builderFactory.getSerializedFormBuilder();
+                serializedFormBuilder.build();
+            }
+        });
     }
 
     /**
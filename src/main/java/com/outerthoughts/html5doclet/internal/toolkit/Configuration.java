@@ -88,7 +88,7 @@ public abstract class Configuration {
     /**
      * The default path to the builder XML.
      */
-    private static final String DEFAULT_BUILDER_XML = "resources/doclet.xml";
+    public static final String DEFAULT_BUILDER_XML = "resources/doclet.xml";
 
     /**
      * The path to Taglets
@@ -236,6 +236,18 @@ public abstract class Configuration {
      */
     public ClassDocCatalog classDocCatalog;
 
+    /**
+     * The index of the members and doclet tags of the documented classes,
+     * built once before the documentation is generated.
+     */
+    public DocIndex docIndex;
+
+    /**
+     * The visible members of the classes, shared by all builders.  The
+     * index is cleared at the end of the run.
+     */
+    public final VisibleMemberIndex visibleMemberIndex = new VisibleMemberIndex(this);
+
     /**
      * Message Retriever for the doclet, to retrieve message from the resource
      * file for this Configuration, which is common for 1.1 and standard
@@ -251,6 +263,58 @@ public abstract class Configuration {
      */
     public boolean notimestamp= false;
 
+    /**
+     * The number of threads used to generate the documentation, set with
+     * the "-threads" option. Default is 1, which generates everything on
+     * the calling thread.
+     */
+    public int threads = 1;
+
+    /**
+     * True if class pages whose inputs did not change since the previous run
+     * should not be generated again, set with the "-incremental" option.
+     * Default is false.
+     */
+    public boolean incremental = false;
+
+    /**
+     * The manifest of the generated pages, if "-incremental" is used.
+     */
+    public PageManifest pageManifest;
+
+    /**
+     * The archive into which the documentation is written, set with the
+     * "-archive" option.  Default is empty, which writes the documentation
+     * to the destination directory.
+     */
+    public String archive = "";
+
+    /**
+     * True if generated files whose content did not change since the
+     * previous run should be left untouched, set with the "-skipunchanged"
+     * option.  Default is false.
+     */
+    public boolean skipunchanged = false;
+
+    /**
+     * The directory in which the package lists of "-link" URLs are cached,
+     * set with the "-linkcache" option.  Default is empty, which fetches
+     * them on every run.
+     */
+    public String linkcache = "";
+
+    /**
+     * The sink to which the generated files are written, or null to write
+     * them to the destination directory.
+     */
+    public OutputSink outputSink;
+
+    /**
+     * True if the time taken by each stage of the generation should be
+     * reported, set with the "-xtimeline" option. Default is false.
+     */
+    public boolean timeline = false;
+
     /**
      * The package grouping instance.
      */
@@ -340,6 +404,7 @@ public abstract class Configuration {
         option = option.toLowerCase();
         if (option.equals("-author") ||
             option.equals("-docfilessubdirs") ||
+            option.equals("-incremental") ||
             option.equals("-javafx") ||
             option.equals("-keywords") ||
             option.equals("-linksource") ||
@@ -348,14 +413,18 @@ public abstract class Configuration {
             option.equals("-nosince") ||
             option.equals("-notimestamp") ||
             option.equals("-quiet") ||
+            option.equals("-skipunchanged") ||
             option.equals("-xnodate") ||
+            option.equals("-xtimeline") ||
             option.equals("-version")) {
             return 1;
-        } else if (option.equals("-d") ||
+        } else if (option.equals("-archive") ||
+                   option.equals("-d") ||
                    option.equals("-docencoding") ||
                    option.equals("-encoding") ||
                    option.equals("-excludedocfilessubdir") ||
                    option.equals("-link") ||
+                   option.equals("-linkcache") ||
                    option.equals("-sourcetab") ||
                    option.equals("-noqualifier") ||
                    option.equals("-output") ||
@@ -363,6 +432,7 @@ public abstract class Configuration {
                    option.equals("-tag") ||
                    option.equals("-taglet") ||
                    option.equals("-tagletpath") ||
+                   option.equals("-threads") ||
                    option.equals("-xprofilespath")) {
             return 2;
         } else if (option.equals("-group") ||
@@ -449,6 +519,7 @@ public abstract class Configuration {
      */
     public void setOptions(String[][] options) throws Fault {
         LinkedHashSet<String[]> customTagStrs = new LinkedHashSet<String[]>();
+        List<String[]> links = new ArrayList<String[]>();
 
         // Some options, specifically -link and -linkoffline, require that
         // the output directory has already been created: so do that first.
@@ -482,6 +553,10 @@ public abstract class Configuration {
                 showversion = true;
             } else if (opt.equals("-nodeprecated")) {
                 nodeprecated = true;
+            } else if (opt.equals("-incremental")) {
+                incremental = true;
+            } else if (opt.equals("-xtimeline")) {
+                timeline = true;
             } else if (opt.equals("-sourcepath")) {
                 sourcepath = os[1];
             } else if ((opt.equals("-classpath") || opt.equals("-cp")) &&
@@ -514,6 +589,14 @@ public abstract class Configuration {
                 customTagStrs.add(os);
             } else if (opt.equals("-tagletpath")) {
                 tagletpath = os[1];
+            } else if (opt.equals("-threads")) {
+                threads = Integer.parseInt(os[1]);
+            } else if (opt.equals("-archive")) {
+                archive = os[1];
+            } else if (opt.equals("-skipunchanged")) {
+                skipunchanged = true;
+            } else if (opt.equals("-linkcache")) {
+                linkcache = os[1];
             }  else if (opt.equals("-xprofilespath")) {
                 profilespath = os[1];
             } else if (opt.equals("-keywords")) {
@@ -522,10 +605,17 @@ public abstract class Configuration {
                 serialwarn = true;
             } else if (opt.equals("-group")) {
                 group.checkPackageGroups(os[1], os[2]);
-            } else if (opt.equals("-link")) {
+            } else if (opt.equals("-link") || opt.equals("-linkoffline")) {
+                links.add(os);
+            }
+        }
+        // The links are read once all options are known, since they depend
+        // on "-linkcache".
+        for (String[] os : links) {
+            if (os[0].equalsIgnoreCase("-link")) {
                 String url = os[1];
                 extern.link(url, url, root, false);
-            } else if (opt.equals("-linkoffline")) {
+            } else {
                 String url = os[1];
                 String pkglisturl = os[2];
                 extern.link(url, pkglisturl, root, true);
@@ -705,6 +795,9 @@ public abstract class Configuration {
     public boolean generalValidOptions(String options[][],
             DocErrorReporter reporter) {
         boolean docencodingfound = false;
+        boolean archivefound = false;
+        boolean incrementalfound = false;
+        boolean skipunchangedfound = false;
         String encoding = "";
         for (int oi = 0; oi < options.length; oi++) {
             String[] os = options[oi];
@@ -716,8 +809,33 @@ public abstract class Configuration {
                 }
             } else if (opt.equals("-encoding")) {
                 encoding = os[1];
+            } else if (opt.equals("-threads")) {
+                if (!checkThreadCount(os[1], reporter)) {
+                    return false;
+                }
+            } else if (opt.equals("-archive")) {
+                if (ArchiveOutputSink.Format.forFile(os[1]) == null) {
+                    reporter.printError(getText("doclet.Option_archive_invalid_arg",
+                        os[1]));
+                    return false;
+                }
+                archivefound = true;
+            } else if (opt.equals("-incremental")) {
+                incrementalfound = true;
+            } else if (opt.equals("-skipunchanged")) {
+                skipunchangedfound = true;
             }
         }
+        if (archivefound && incrementalfound) {
+            reporter.printError(getText("doclet.Option_conflict",
+                "-archive", "-incremental"));
+            return false;
+        }
+        if (archivefound && skipunchangedfound) {
+            reporter.printError(getText("doclet.Option_conflict",
+                "-archive", "-skipunchanged"));
+            return false;
+        }
         if (!docencodingfound && encoding.length() > 0) {
             if (!checkOutputFileEncoding(encoding, reporter)) {
                 return false;
@@ -765,6 +883,24 @@ public abstract class Configuration {
         return true;
     }
 
+    /**
+     * Check that the argument of the "-threads" option is a positive number.
+     *
+     * @param threads  the argument of the option.
+     * @param reporter used to report errors.
+     */
+    private boolean checkThreadCount(String threads, DocErrorReporter reporter) {
+        try {
+            if (Integer.parseInt(threads) > 0) {
+                return true;
+            }
+        } catch (NumberFormatException exc) {
+        }
+        reporter.printError(getText("doclet.Option_threads_invalid_arg",
+            threads));
+        return false;
+    }
+
     /**
      * Return true if the given doc-file subdirectory should be excluded and
      * false otherwise.
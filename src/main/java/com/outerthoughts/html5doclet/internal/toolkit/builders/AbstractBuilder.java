@@ -26,6 +26,11 @@
 package com.outerthoughts.html5doclet.internal.toolkit.builders;
 
 import java.io.*;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.lang.invoke.*;
 import java.lang.reflect.*;
 import java.util.*;
 
@@ -52,6 +57,53 @@ import com.outerthoughts.html5doclet.internal.toolkit.util.*;
  */
 
 public abstract class AbstractBuilder {
+
+    /**
+     * The type to which the handles of the build methods are adapted.
+     */
+    private static final MethodType BUILD_METHOD_TYPE = MethodType.methodType(
+            void.class, AbstractBuilder.class, XMLNode.class, Content.class);
+
+    /**
+     * The dispatch table of each builder class, which maps the name of
+     * each layout element to the method that builds it.  The table is
+     * compiled once per class from the public build methods.
+     */
+    private static final ClassValue<DispatchTable> DISPATCH_TABLES =
+            new ClassValue<DispatchTable>() {
+        @Override
+        protected DispatchTable computeValue(Class<?> type) {
+            return compileDispatchTable(type);
+        }
+    };
+
+    /**
+     * Marks a build method that hands the children of its element to
+     * another builder, so that the layouts can be checked before any
+     * documentation is built.
+     */
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target(ElementType.METHOD)
+    @interface ChildrenBuiltBy {
+        Class<? extends AbstractBuilder> value();
+    }
+
+    /**
+     * The build methods of a builder class, and the builders to which
+     * some of them hand the children of their element, by the name of
+     * the element.
+     */
+    private static class DispatchTable {
+        final Map<String,MethodHandle> methods;
+        final Map<String,Class<? extends AbstractBuilder>> childBuilders;
+
+        DispatchTable(Map<String,MethodHandle> methods,
+                Map<String,Class<? extends AbstractBuilder>> childBuilders) {
+            this.methods = methods;
+            this.childBuilders = childBuilders;
+        }
+    }
+
     public static class Context {
         /**
          * The configuration used in this run of the doclet.
@@ -131,22 +183,18 @@ public abstract class AbstractBuilder {
      */
     protected void build(XMLNode node, Content contentTree) {
         String component = node.name;
-        try {
-            invokeMethod("build" + component,
-                    new Class<?>[]{XMLNode.class, Content.class},
-                    new Object[]{node, contentTree});
-        } catch (NoSuchMethodException e) {
-            e.printStackTrace();
+        if (DEBUG) {
+            configuration.root.printError("DEBUG: " + this.getClass().getName() + ".build" + component);
+        }
+        MethodHandle method = DISPATCH_TABLES.get(getClass()).methods.get(component);
+        if (method == null) {
             configuration.root.printError("Unknown element: " + component);
-            throw new DocletAbortException(e);
-        } catch (InvocationTargetException e) {
-            throw new DocletAbortException(e.getCause());
-        } catch (Exception e) {
-            e.printStackTrace();
-            configuration.root.printError("Exception " +
-                    e.getClass().getName() +
-                    " thrown while processing element: " + component);
-            throw new DocletAbortException(e);
+            throw new DocletAbortException("Unknown element: " + component);
+        }
+        try {
+            method.invokeExact(this, node, contentTree);
+        } catch (Throwable t) {
+            throw new DocletAbortException(t);
         }
     }
 
@@ -162,21 +210,62 @@ public abstract class AbstractBuilder {
     }
 
     /**
-     * Given the name and parameters, invoke the method in the builder.  This
-     * method is required to invoke the appropriate build method as instructed
-     * by the builder XML file.
+     * Return true if the given builder class has a method that builds the
+     * layout element with the given name.
      *
-     * @param methodName   the name of the method that we would like to invoke.
-     * @param paramClasses the types for each parameter.
-     * @param params       the parameters of the method.
+     * @param builderClass the builder class.
+     * @param component    the name of the layout element.
      */
-    protected void invokeMethod(String methodName, Class<?>[] paramClasses,
-            Object[] params)
-    throws Exception {
-        if (DEBUG) {
-            configuration.root.printError("DEBUG: " + this.getClass().getName() + "." + methodName);
+    static boolean canBuild(Class<? extends AbstractBuilder> builderClass, String component) {
+        return DISPATCH_TABLES.get(builderClass).methods.containsKey(component);
+    }
+
+    /**
+     * Return the builder class that builds the children of the layout
+     * element with the given name, when it is built by the given builder
+     * class.
+     *
+     * @param builderClass the builder class.
+     * @param component    the name of the layout element.
+     */
+    static Class<? extends AbstractBuilder> getChildBuilder(
+            Class<? extends AbstractBuilder> builderClass, String component) {
+        Class<? extends AbstractBuilder> childBuilder =
+            DISPATCH_TABLES.get(builderClass).childBuilders.get(component);
+        return childBuilder != null ? childBuilder : builderClass;
+    }
+
+    /**
+     * Compile the dispatch table of the given builder class.  The element
+     * named "Name" is built by the public method
+     * {@code void buildName(XMLNode, Content)}.
+     */
+    private static DispatchTable compileDispatchTable(Class<?> type) {
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        Map<String,MethodHandle> table = new HashMap<String,MethodHandle>();
+        Map<String,Class<? extends AbstractBuilder>> childBuilders =
+            new HashMap<String,Class<? extends AbstractBuilder>>();
+        for (Method method : type.getMethods()) {
+            String name = method.getName();
+            Class<?>[] params = method.getParameterTypes();
+            if (name.length() > "build".length() && name.startsWith("build")
+                    && !Modifier.isStatic(method.getModifiers())
+                    && params.length == 2
+                    && params[0] == XMLNode.class && params[1] == Content.class) {
+                String component = name.substring("build".length());
+                try {
+                    table.put(component,
+                            lookup.unreflect(method).asType(BUILD_METHOD_TYPE));
+                } catch (IllegalAccessException e) {
+                    throw new DocletAbortException(e);
+                }
+                ChildrenBuiltBy children = method.getAnnotation(ChildrenBuiltBy.class);
+                if (children != null) {
+                    childBuilders.put(component, children.value());
+                }
+            }
         }
-        Method method = this.getClass().getMethod(methodName, paramClasses);
-        method.invoke(this, params);
+        return new DispatchTable(Collections.unmodifiableMap(table),
+                Collections.unmodifiableMap(childBuilders));
     }
 }
@@ -135,12 +135,11 @@ public class AnnotationTypeBuilder extends AbstractBuilder {
         if((configuration.packages == null ||
                 Arrays.binarySearch(configuration.packages,
                                     containingPackage) < 0) &&
-           ! containingPackagesSeen.contains(containingPackage.name())){
+           containingPackagesSeen.add(containingPackage.name())){
             //Only copy doc files dir if the containing package is not
             //documented AND if we have not documented a class from the same
             //package already. Otherwise, we are making duplicate copies.
             Util.copyDocFiles(configuration, containingPackage);
-            containingPackagesSeen.add(containingPackage.name());
         }
      }
 
@@ -205,6 +204,7 @@ public class AnnotationTypeBuilder extends AbstractBuilder {
      * @param node the XML element that specifies which components to document
      * @param annotationContentTree the content tree to which the documentation will be added
      */
+    @ChildrenBuiltBy(MemberSummaryBuilder.class)
     public void buildMemberSummary(XMLNode node, Content annotationContentTree)
             throws Exception {
         Content memberSummaryTree = writer.getMemberTreeHeader();
@@ -233,6 +233,7 @@ public class AnnotationTypeBuilder extends AbstractBuilder {
      * @param node the XML element that specifies which components to document
      * @param memberDetailsTree the content tree to which the documentation will be added
      */
+    @ChildrenBuiltBy(AnnotationTypeFieldBuilder.class)
     public void buildAnnotationTypeFieldDetails(XMLNode node, Content memberDetailsTree)
             throws Exception {
         configuration.getBuilderFactory().
@@ -245,6 +246,7 @@ public class AnnotationTypeBuilder extends AbstractBuilder {
      * @param node the XML element that specifies which components to document
      * @param memberDetailsTree the content tree to which the documentation will be added
      */
+    @ChildrenBuiltBy(AnnotationTypeOptionalMemberBuilder.class)
     public void buildAnnotationTypeOptionalMemberDetails(XMLNode node, Content memberDetailsTree)
             throws Exception {
         configuration.getBuilderFactory().
@@ -257,6 +259,7 @@ public class AnnotationTypeBuilder extends AbstractBuilder {
      * @param node the XML element that specifies which components to document
      * @param memberDetailsTree the content tree to which the documentation will be added
      */
+    @ChildrenBuiltBy(AnnotationTypeRequiredMemberBuilder.class)
     public void buildAnnotationTypeRequiredMemberDetails(XMLNode node, Content memberDetailsTree)
             throws Exception {
         configuration.getBuilderFactory().
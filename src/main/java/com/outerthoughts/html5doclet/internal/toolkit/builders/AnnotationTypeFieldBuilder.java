@@ -85,8 +85,8 @@ public class AnnotationTypeFieldBuilder extends AbstractMemberBuilder {
         super(context);
         this.classDoc = classDoc;
         this.writer = writer;
-        this.visibleMemberMap = new VisibleMemberMap(classDoc, memberType,
-            configuration);
+        this.visibleMemberMap = configuration.visibleMemberIndex.getVisibleMemberMap(
+            classDoc, memberType);
         this.members = new ArrayList<ProgramElementDoc>(
             this.visibleMemberMap.getMembersFor(classDoc));
         if (configuration.getMemberComparator() != null) {
@@ -25,8 +25,11 @@
 
 package com.outerthoughts.html5doclet.internal.toolkit.builders;
 
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.sun.javadoc.*;
 import com.sun.tools.javac.jvm.Profile;
@@ -47,6 +50,18 @@ import com.outerthoughts.html5doclet.internal.toolkit.util.*;
 
 public class BuilderFactory {
 
+    /**
+     * The builders of the layouts in the builder XML file.  The layouts
+     * each of them builds, and the builders of the nested elements, are
+     * found from their build methods.
+     */
+    private static final List<Class<? extends AbstractBuilder>> LAYOUT_BUILDERS =
+        Arrays.<Class<? extends AbstractBuilder>>asList(
+            ProfileSummaryBuilder.class, PackageSummaryBuilder.class,
+            ProfilePackageSummaryBuilder.class, AnnotationTypeBuilder.class,
+            ClassBuilder.class, ConstantsSummaryBuilder.class,
+            SerializedFormBuilder.class);
+
     /**
      * The current configuration of the doclet.
      */
@@ -68,7 +83,8 @@ public class BuilderFactory {
         this.configuration = configuration;
         this.writerFactory = configuration.getWriterFactory();
 
-        Set<String> containingPackagesSeen = new HashSet<String>();
+        Set<String> containingPackagesSeen =
+                Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
         context = new AbstractBuilder.Context(configuration, containingPackagesSeen,
                 LayoutParser.getInstance(configuration));
     }
@@ -300,4 +316,36 @@ public class BuilderFactory {
             throws Exception {
         return SerializedFormBuilder.getInstance(context);
     }
+
+    /**
+     * Check that every element of the layouts in the builder XML file is
+     * built by the builder that builds the children of its parent, so that
+     * a customized layout with an unknown or misplaced element fails before
+     * any documentation is generated.
+     *
+     * @throws DocletAbortException if an element is unknown or misplaced.
+     */
+    public void validateLayout() {
+        for (XMLNode layout : context.layoutParser.getLayouts()) {
+            for (Class<? extends AbstractBuilder> builder : LAYOUT_BUILDERS) {
+                if (AbstractBuilder.canBuild(builder, layout.name)) {
+                    validateLayout(layout, null, builder);
+                }
+            }
+        }
+    }
+
+    private void validateLayout(XMLNode node, XMLNode parent,
+            Class<? extends AbstractBuilder> builder) {
+        if (!AbstractBuilder.canBuild(builder, node.name)) {
+            configuration.message.error("doclet.Layout_unknown_element", node.name,
+                parent == null ? node.name : parent.name);
+            throw new DocletAbortException("Unknown element: " + node.name);
+        }
+        Class<? extends AbstractBuilder> childBuilder =
+            AbstractBuilder.getChildBuilder(builder, node.name);
+        for (XMLNode child : node.children) {
+            validateLayout(child, node, childBuilder);
+        }
+    }
 }
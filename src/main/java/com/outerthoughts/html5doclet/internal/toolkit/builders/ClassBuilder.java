@@ -273,12 +273,11 @@ public class ClassBuilder extends AbstractBuilder {
         if((configuration.packages == null ||
                 Arrays.binarySearch(configuration.packages,
                 containingPackage) < 0) &&
-                ! containingPackagesSeen.contains(containingPackage.name())){
+                containingPackagesSeen.add(containingPackage.name())){
             //Only copy doc files dir if the containing package is not
             //documented AND if we have not documented a class from the same
             //package already. Otherwise, we are making duplicate copies.
             Util.copyDocFiles(configuration, containingPackage);
-            containingPackagesSeen.add(containingPackage.name());
         }
      }
 
@@ -338,6 +337,7 @@ public class ClassBuilder extends AbstractBuilder {
      * @param node the XML element that specifies which components to document
      * @param classContentTree the content tree to which the documentation will be added
      */
+    @ChildrenBuiltBy(MemberSummaryBuilder.class)
     public void buildMemberSummary(XMLNode node, Content classContentTree) throws Exception {
         Content memberSummaryTree = writer.getMemberTreeHeader();
         configuration.getBuilderFactory().
@@ -363,6 +363,7 @@ public class ClassBuilder extends AbstractBuilder {
      * @param node the XML element that specifies which components to document
      * @param memberDetailsTree the content tree to which the documentation will be added
      */
+    @ChildrenBuiltBy(EnumConstantBuilder.class)
     public void buildEnumConstantsDetails(XMLNode node,
             Content memberDetailsTree) throws Exception {
         configuration.getBuilderFactory().
@@ -375,6 +376,7 @@ public class ClassBuilder extends AbstractBuilder {
      * @param node the XML element that specifies which components to document
      * @param memberDetailsTree the content tree to which the documentation will be added
      */
+    @ChildrenBuiltBy(FieldBuilder.class)
     public void buildFieldDetails(XMLNode node,
             Content memberDetailsTree) throws Exception {
         configuration.getBuilderFactory().
@@ -386,6 +388,7 @@ public class ClassBuilder extends AbstractBuilder {
      *
      * @param elements the XML elements that specify how a field is documented.
      */
+    @ChildrenBuiltBy(PropertyBuilder.class)
     public void buildPropertyDetails(XMLNode node,
             Content memberDetailsTree) throws Exception {
         configuration.getBuilderFactory().
@@ -398,6 +401,7 @@ public class ClassBuilder extends AbstractBuilder {
      * @param node the XML element that specifies which components to document
      * @param memberDetailsTree the content tree to which the documentation will be added
      */
+    @ChildrenBuiltBy(ConstructorBuilder.class)
     public void buildConstructorDetails(XMLNode node,
             Content memberDetailsTree) throws Exception {
         configuration.getBuilderFactory().
@@ -410,6 +414,7 @@ public class ClassBuilder extends AbstractBuilder {
      * @param node the XML element that specifies which components to document
      * @param memberDetailsTree the content tree to which the documentation will be added
      */
+    @ChildrenBuiltBy(MethodBuilder.class)
     public void buildMethodDetails(XMLNode node,
             Content memberDetailsTree) throws Exception {
         configuration.getBuilderFactory().
@@ -264,8 +264,8 @@ public class ConstantsSummaryBuilder extends AbstractBuilder {
      * @return true if the given package has constant fields to document.
      */
     private boolean hasConstantField (ClassDoc classDoc) {
-        VisibleMemberMap visibleMemberMapFields = new VisibleMemberMap(classDoc,
-            VisibleMemberMap.FIELDS, configuration);
+        VisibleMemberMap visibleMemberMapFields = configuration.visibleMemberIndex.getVisibleMemberMap(
+            classDoc, VisibleMemberMap.FIELDS);
         List<?> fields = visibleMemberMapFields.getLeafClassMembers(configuration);
         for (Iterator<?> iter = fields.iterator(); iter.hasNext(); ) {
             FieldDoc field = (FieldDoc) iter.next();
@@ -322,10 +322,10 @@ public class ConstantsSummaryBuilder extends AbstractBuilder {
          */
         public ConstantFieldBuilder(ClassDoc classdoc) {
             this.classdoc = classdoc;
-            visibleMemberMapFields = new VisibleMemberMap(classdoc,
-                VisibleMemberMap.FIELDS, configuration);
-            visibleMemberMapEnumConst = new VisibleMemberMap(classdoc,
-                VisibleMemberMap.ENUM_CONSTANTS, configuration);
+            visibleMemberMapFields = configuration.visibleMemberIndex.getVisibleMemberMap(
+                classdoc, VisibleMemberMap.FIELDS);
+            visibleMemberMapEnumConst = configuration.visibleMemberIndex.getVisibleMemberMap(
+                classdoc, VisibleMemberMap.ENUM_CONSTANTS);
         }
 
         /**
@@ -90,10 +90,8 @@ public class ConstructorBuilder extends AbstractMemberBuilder {
         this.classDoc = classDoc;
         this.writer = writer;
         visibleMemberMap =
-                new VisibleMemberMap(
-                classDoc,
-                VisibleMemberMap.CONSTRUCTORS,
-                configuration);
+                configuration.visibleMemberIndex.getVisibleMemberMap(
+                    classDoc, VisibleMemberMap.CONSTRUCTORS);
         constructors =
                 new ArrayList<ProgramElementDoc>(visibleMemberMap.getMembersFor(classDoc));
         for (int i = 0; i < constructors.size(); i++) {
@@ -84,10 +84,8 @@ public class EnumConstantBuilder extends AbstractMemberBuilder {
         this.classDoc = classDoc;
         this.writer = writer;
         visibleMemberMap =
-                new VisibleMemberMap(
-                classDoc,
-                VisibleMemberMap.ENUM_CONSTANTS,
-                configuration);
+                configuration.visibleMemberIndex.getVisibleMemberMap(
+                    classDoc, VisibleMemberMap.ENUM_CONSTANTS);
         enumConstants =
                 new ArrayList<ProgramElementDoc>(visibleMemberMap.getMembersFor(classDoc));
         if (configuration.getMemberComparator() != null) {
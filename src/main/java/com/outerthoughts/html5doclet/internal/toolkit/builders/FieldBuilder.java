@@ -85,10 +85,8 @@ public class FieldBuilder extends AbstractMemberBuilder {
         this.classDoc = classDoc;
         this.writer = writer;
         visibleMemberMap =
-                new VisibleMemberMap(
-                classDoc,
-                VisibleMemberMap.FIELDS,
-                configuration);
+                configuration.visibleMemberIndex.getVisibleMemberMap(
+                    classDoc, VisibleMemberMap.FIELDS);
         fields =
                 new ArrayList<ProgramElementDoc>(visibleMemberMap.getLeafClassMembers(
                 configuration));
@@ -37,7 +37,9 @@ import com.outerthoughts.html5doclet.internal.toolkit.util.*;
 
 /**
  * Parse the XML that specified the order of operation for the builders.  This
- * Parser uses SAX parsing.
+ * Parser uses SAX parsing.  The whole file is parsed once into unmodifiable
+ * layout trees that are shared by all builders.  The bundled layout is
+ * parsed at most once per JVM.
  *
  *  <p><b>This is NOT part of any supported API.
  *  If you write code that depends on this, you do so at your own risk.
@@ -50,47 +52,100 @@ import com.outerthoughts.html5doclet.internal.toolkit.util.*;
  */
 public class LayoutParser extends DefaultHandler {
 
+    /**
+     * The layouts of the bundled builder XML file, parsed on first use.
+     */
+    private static class DefaultLayouts {
+        static final Map<String,XMLNode> LAYOUTS = parse(
+                Configuration.class.getResourceAsStream(Configuration.DEFAULT_BUILDER_XML));
+    }
+
     /**
      * The map of XML elements that have been parsed.
      */
-    private Map<String,XMLNode> xmlElementsMap;
+    private final Map<String,XMLNode> xmlElementsMap;
+
+    /**
+     * The layouts parsed so far, by the name of their root element.  Only
+     * used while parsing.
+     */
+    private final Map<String,XMLNode> parsedLayouts = new LinkedHashMap<String,XMLNode>();
     private XMLNode currentNode;
-    private final Configuration configuration;
-    private String currentRoot;
-    private boolean isParsing;
+    private int depth;
 
-    private LayoutParser(Configuration configuration) {
-        xmlElementsMap = new HashMap<String,XMLNode>();
-        this.configuration = configuration;
+    private LayoutParser() {
+        xmlElementsMap = null;
+    }
+
+    private LayoutParser(Map<String,XMLNode> layouts) {
+        xmlElementsMap = layouts;
     }
 
     /**
-     * Return an instance of the BuilderXML.
+     * Return an instance of the BuilderXML.  The builder XML file of the
+     * configuration is parsed at once.
      *
      * @param configuration the current configuration of the doclet.
      * @return an instance of the BuilderXML.
      */
     public static LayoutParser getInstance(Configuration configuration) {
-        return new LayoutParser(configuration);
+        if (usesDefaultLayout(configuration)) {
+            return new LayoutParser(DefaultLayouts.LAYOUTS);
+        }
+        try {
+            return new LayoutParser(parse(configuration.getBuilderXML()));
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new DocletAbortException(e);
+        }
+    }
+
+    /**
+     * Return true if the configuration reads the bundled builder XML file.
+     */
+    private static boolean usesDefaultLayout(Configuration configuration) {
+        if (configuration.builderXMLPath != null) {
+            return false;
+        }
+        try {
+            return configuration.getClass().getMethod("getBuilderXML")
+                    .getDeclaringClass() == Configuration.class;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
     }
 
     /**
-     * Parse the XML specifying the layout of the documentation.
+     * Return the layout with the given root element.  The layout is
+     * unmodifiable and may be shared by builders on any thread.
      *
-     * @return the list of XML elements parsed.
+     * @return the root of the layout, or null if there is none.
      */
     public XMLNode parseXML(String root) {
-        if (xmlElementsMap.containsKey(root)) {
-            return xmlElementsMap.get(root);
-        }
+        return xmlElementsMap.get(root);
+    }
+
+    /**
+     * Return all layouts, in the order of the builder XML file.
+     */
+    public Collection<XMLNode> getLayouts() {
+        return xmlElementsMap.values();
+    }
+
+    /**
+     * Parse all layouts in the given builder XML file.
+     */
+    private static Map<String,XMLNode> parse(InputStream in) {
         try {
-            currentRoot = root;
-            isParsing = false;
             SAXParserFactory factory = SAXParserFactory.newInstance();
             SAXParser saxParser = factory.newSAXParser();
-            InputStream in = configuration.getBuilderXML();
-            saxParser.parse(in, this);
-            return xmlElementsMap.get(root);
+            LayoutParser handler = new LayoutParser();
+            try {
+                saxParser.parse(in, handler);
+            } finally {
+                in.close();
+            }
+            return Collections.unmodifiableMap(handler.parsedLayouts);
         } catch (Throwable t) {
             t.printStackTrace();
             throw new DocletAbortException(t);
@@ -104,14 +159,13 @@ public class LayoutParser extends DefaultHandler {
     public void startElement(String namespaceURI, String sName, String qName,
         Attributes attrs)
     throws SAXException {
-        if (isParsing || qName.equals(currentRoot)) {
-            isParsing = true;
-            currentNode = new XMLNode(currentNode, qName);
-            for (int i = 0; i < attrs.getLength(); i++)
-                currentNode.attrs.put(attrs.getLocalName(i), attrs.getValue(i));
-            if (qName.equals(currentRoot))
-                xmlElementsMap.put(qName, currentNode);
+        // the layouts are the children of the document element
+        if (depth++ == 0) {
+            return;
         }
+        currentNode = new XMLNode(currentNode, qName);
+        for (int i = 0; i < attrs.getLength(); i++)
+            currentNode.attrs.put(attrs.getLocalName(i), attrs.getValue(i));
     }
 
     /**
@@ -120,10 +174,12 @@ public class LayoutParser extends DefaultHandler {
     @Override
     public void endElement(String namespaceURI, String sName, String qName)
     throws SAXException {
-        if (! isParsing) {
+        if (--depth == 0) {
             return;
         }
+        if (currentNode.parent == null) {
+            parsedLayouts.put(qName, currentNode.freeze());
+        }
         currentNode = currentNode.parent;
-        isParsing = ! qName.equals(currentRoot);
     }
 }
@@ -80,10 +80,8 @@ public class MemberSummaryBuilder extends AbstractMemberBuilder {
                 new VisibleMemberMap[VisibleMemberMap.NUM_MEMBER_TYPES];
         for (int i = 0; i < VisibleMemberMap.NUM_MEMBER_TYPES; i++) {
             visibleMemberMaps[i] =
-                    new VisibleMemberMap(
-                    classDoc,
-                    i,
-                    configuration);
+                    configuration.visibleMemberIndex.getVisibleMemberMap(
+                        classDoc, i);
         }
     }
 
@@ -85,10 +85,8 @@ public class MethodBuilder extends AbstractMemberBuilder {
         super(context);
         this.classDoc = classDoc;
         this.writer = writer;
-        visibleMemberMap = new VisibleMemberMap(
-                classDoc,
-                VisibleMemberMap.METHODS,
-                configuration);
+        visibleMemberMap = configuration.visibleMemberIndex.getVisibleMemberMap(
+            classDoc, VisibleMemberMap.METHODS);
         methods =
                 new ArrayList<ProgramElementDoc>(visibleMemberMap.getLeafClassMembers(
                 configuration));
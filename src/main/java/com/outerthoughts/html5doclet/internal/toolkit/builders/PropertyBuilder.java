@@ -85,10 +85,8 @@ public class PropertyBuilder extends AbstractMemberBuilder {
         this.classDoc = classDoc;
         this.writer = writer;
         visibleMemberMap =
-                new VisibleMemberMap(
-                classDoc,
-                VisibleMemberMap.PROPERTIES,
-                configuration);
+                configuration.visibleMemberIndex.getVisibleMemberMap(
+                    classDoc, VisibleMemberMap.PROPERTIES);
         properties =
                 new ArrayList<ProgramElementDoc>(visibleMemberMap.getMembersFor(classDoc));
         if (configuration.getMemberComparator() != null) {
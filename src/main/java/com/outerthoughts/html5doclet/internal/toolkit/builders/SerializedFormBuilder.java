@@ -482,7 +482,7 @@ public class SerializedFormBuilder extends AbstractBuilder {
                 continue;
             Content fieldsContentTree = fieldWriter.getFieldsContentHeader(
                     (i == tagsLength - 1));
-            fieldWriter.addMemberHeader(tags[i].fieldTypeDoc(),
+            fieldWriter.addMemberHeader(Util.fieldTypeDoc(tags[i]),
                     tags[i].fieldType(), "", tags[i].fieldName(), fieldsContentTree);
             fieldWriter.addMemberDescription(tags[i], fieldsContentTree);
             serializableFieldsTree.addContent(fieldsContentTree);
@@ -26,12 +26,16 @@
 package com.outerthoughts.html5doclet.internal.toolkit.builders;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 /**
  * Simple class to represent the attribute and elements of an XML node.
+ * The nodes of a layout are built by the {@link LayoutParser} and then
+ * {@link #freeze() frozen}, so that the layout can be shared by builders
+ * on any thread.
  *
  *  <p><b>This is NOT part of any supported API.
  *  If you write code that depends on this, you do so at your own risk.
@@ -49,6 +53,28 @@ public class XMLNode {
             parent.children.add(this);
     }
 
+    /**
+     * Construct an unmodifiable copy of a node and its descendants.
+     */
+    private XMLNode(XMLNode parent, XMLNode source) {
+        this.parent = parent;
+        name = source.name;
+        attrs = source.attrs.isEmpty() ? Collections.<String,String>emptyMap() :
+            Collections.unmodifiableMap(new HashMap<String,String>(source.attrs));
+        List<XMLNode> copies = new ArrayList<XMLNode>(source.children.size());
+        for (XMLNode child : source.children)
+            copies.add(new XMLNode(this, child));
+        children = Collections.unmodifiableList(copies);
+    }
+
+    /**
+     * Return an unmodifiable copy of this node and its descendants, as the
+     * root of a new tree.
+     */
+    XMLNode freeze() {
+        return new XMLNode(null, this);
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
@@ -176,7 +176,7 @@ public class TagletManager {
         potentiallyConflictingTags = new HashSet<String>();
         standardTags = new HashSet<String>();
         standardTagsLowercase = new HashSet<String>();
-        unseenCustomTags = new HashSet<String>();
+        unseenCustomTags = Collections.synchronizedSet(new HashSet<String>());
         customTags = new LinkedHashMap<String,Taglet>();
         this.nosince = nosince;
         this.showversion = showversion;
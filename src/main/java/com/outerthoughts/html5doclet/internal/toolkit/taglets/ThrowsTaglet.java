@@ -56,26 +56,27 @@ public class ThrowsTaglet extends BaseExecutableMemberTaglet
         ClassDoc exception;
         if (input.tagId == null) {
             ThrowsTag throwsTag = (ThrowsTag) input.tag;
-            exception = throwsTag.exception();
+            exception = Util.exception(throwsTag);
             input.tagId = exception == null ?
                 throwsTag.exceptionName() :
-                throwsTag.exception().qualifiedName();
+                exception.qualifiedName();
         } else {
-            exception = input.element.containingClass().findClass(input.tagId);
+            exception = Util.findClass(input.element.containingClass(), input.tagId);
         }
 
         ThrowsTag[] tags = ((MethodDoc)input.element).throwsTags();
         for (int i = 0; i < tags.length; i++) {
+            ClassDoc tagException = Util.exception(tags[i]);
             if (input.tagId.equals(tags[i].exceptionName()) ||
-                (tags[i].exception() != null &&
-                    (input.tagId.equals(tags[i].exception().qualifiedName())))) {
+                (tagException != null &&
+                    (input.tagId.equals(tagException.qualifiedName())))) {
                 output.holder = input.element;
                 output.holderTag = tags[i];
                 output.inlineTags = input.isFirstSentence ?
                     tags[i].firstSentenceTags() : tags[i].inlineTags();
                 output.tagList.add(tags[i]);
-            } else if (exception != null && tags[i].exception() != null &&
-                    tags[i].exception().subclassOf(exception)) {
+            } else if (exception != null && tagException != null &&
+                    tagException.subclassOf(exception)) {
                 output.tagList.add(tags[i]);
             }
         }
@@ -169,7 +170,7 @@ public class ThrowsTaglet extends BaseExecutableMemberTaglet
         if (throwTags.length > 0) {
             for (int i = 0; i < throwTags.length; ++i) {
                 ThrowsTag tt = throwTags[i];
-                ClassDoc cd = tt.exception();
+                ClassDoc cd = Util.exception(tt);
                 if ((!allowDups) && (alreadyDocumented.contains(tt.exceptionName()) ||
                     (cd != null && alreadyDocumented.contains(cd.qualifiedName())))) {
                     continue;
@@ -0,0 +1,330 @@
+/*
+ * Copyright (C) 2021, Thalia Nero
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  This particular file is
+ * designated as subject to the "Classpath" exception as provided in
+ * the LICENSE file that accompanies this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.outerthoughts.html5doclet.internal.toolkit.util;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes the generated files into a single ZIP, JAR or uncompressed tar
+ * archive, set with the "-archive" option.
+ *
+ * <p>Each file is collected in memory until it is closed, and then queued
+ * for a single thread that appends the files to the archive one after the
+ * other.  The queue is bounded, so that threads generating files faster
+ * than they can be written wait for the archive to catch up.  A file can
+ * only be written once.
+ *
+ *  <p><b>This is NOT part of any supported API.
+ *  If you write code that depends on this, you do so at your own risk.
+ *  This code and its internal interfaces are subject to change or
+ *  deletion without notice.</b>
+ */
+public class ArchiveOutputSink implements OutputSink {
+
+    /**
+     * The kinds of archive, chosen by the extension of the archive file.
+     */
+    public enum Format {
+        ZIP, JAR, TAR;
+
+        /**
+         * Return the format of the given archive file, or null if its
+         * extension is not known.
+         */
+        public static Format forFile(String name) {
+            String lower = name.toLowerCase(Locale.ROOT);
+            for (Format format : values()) {
+                if (lower.endsWith("." + format.name().toLowerCase(Locale.ROOT))) {
+                    return format;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * The number of closed files that may wait for the archive.
+     */
+    private static final int QUEUE_CAPACITY = 256;
+
+    private static final int TAR_BLOCK = 512;
+
+    /**
+     * A closed file waiting to be written.
+     */
+    private static class Entry {
+        final String name;
+        final byte[] data;
+
+        Entry(String name, byte[] data) {
+            this.name = name;
+            this.data = data;
+        }
+    }
+
+    /**
+     * The entry that tells the writer thread that all files are queued.
+     */
+    private static final Entry END = new Entry(null, null);
+
+    private final Format format;
+
+    private final OutputStream out;
+
+    private final long time = System.currentTimeMillis();
+
+    private final BlockingQueue<Entry> queue = new ArrayBlockingQueue<Entry>(QUEUE_CAPACITY);
+
+    private final Set<String> names =
+            Collections.newSetFromMap(new ConcurrentHashMap<String,Boolean>());
+
+    private final Thread writer;
+
+    /**
+     * The first error of the writer thread.  Once set, files are no longer
+     * written, but still taken from the queue, so that no thread waits for
+     * the archive forever.
+     */
+    private volatile IOException failure;
+
+    private boolean closed;
+
+    /**
+     * Create the archive and start the thread that writes it.
+     *
+     * @param file   the archive file.
+     * @param format the kind of archive.
+     */
+    public ArchiveOutputSink(File file, Format format) throws IOException {
+        this.format = format;
+        OutputStream stream = new BufferedOutputStream(new FileOutputStream(file));
+        switch (format) {
+            case ZIP:
+                out = new ZipOutputStream(stream);
+                break;
+            case JAR:
+                Manifest manifest = new Manifest();
+                manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+                out = new JarOutputStream(stream, manifest);
+                break;
+            default:
+                out = stream;
+        }
+        writer = new Thread(new Runnable() {
+            public void run() {
+                writeEntries();
+            }
+        }, "doclet-archive-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public OutputStream openOutputStream(DocPath path) throws IOException {
+        checkFailure();
+        final String name = path.getPath();
+        return new ByteArrayOutputStream() {
+            private boolean queued;
+
+            @Override
+            public void close() throws IOException {
+                if (!queued) {
+                    queued = true;
+                    enqueue(name, toByteArray());
+                }
+            }
+        };
+    }
+
+    /**
+     * Files cannot be read back from the archive.
+     */
+    public InputStream openInputStream(DocPath path) throws IOException {
+        throw new FileNotFoundException(path.getPath() + " cannot be read from the archive");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean contains(DocPath path) {
+        return names.contains(path.getPath());
+    }
+
+    /**
+     * Write the remaining files and the end of the archive, and wait until
+     * the archive is complete.
+     */
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            queue.put(END);
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+        checkFailure();
+    }
+
+    private void enqueue(String name, byte[] data) throws IOException {
+        checkFailure();
+        if (!names.add(name)) {
+            throw new IOException(name + " is written more than once to the archive");
+        }
+        try {
+            queue.put(new Entry(name, data));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        IOException e = failure;
+        if (e != null) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * The loop of the writer thread.
+     */
+    private void writeEntries() {
+        try {
+            Entry entry;
+            while ((entry = queue.take()) != END) {
+                if (failure == null) {
+                    try {
+                        writeEntry(entry);
+                    } catch (IOException e) {
+                        failure = e;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            failure = new InterruptedIOException();
+        }
+        try {
+            if (format == Format.TAR && failure == null) {
+                out.write(new byte[2 * TAR_BLOCK]);
+            }
+            out.close();
+        } catch (IOException e) {
+            if (failure == null) {
+                failure = e;
+            }
+        }
+    }
+
+    private void writeEntry(Entry entry) throws IOException {
+        if (format == Format.TAR) {
+            writeTarHeader(entry.name, entry.data.length);
+            out.write(entry.data);
+            int padding = (TAR_BLOCK - entry.data.length % TAR_BLOCK) % TAR_BLOCK;
+            out.write(new byte[padding]);
+        } else {
+            ZipEntry zipEntry = new ZipEntry(entry.name);
+            zipEntry.setTime(time);
+            ZipOutputStream zip = (ZipOutputStream) out;
+            zip.putNextEntry(zipEntry);
+            zip.write(entry.data);
+            zip.closeEntry();
+        }
+    }
+
+    /**
+     * Write a POSIX ustar header for a regular file.  Names longer than 100
+     * bytes are split at a slash into a prefix and a name.
+     */
+    private void writeTarHeader(String name, long size) throws IOException {
+        byte[] header = new byte[TAR_BLOCK];
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        byte[] prefixBytes = new byte[0];
+        if (nameBytes.length > 100) {
+            int split = name.indexOf('/');
+            while (true) {
+                if (split < 0) {
+                    throw new IOException(name + " is too long for a tar archive");
+                }
+                prefixBytes = name.substring(0, split).getBytes(StandardCharsets.UTF_8);
+                nameBytes = name.substring(split + 1).getBytes(StandardCharsets.UTF_8);
+                if (prefixBytes.length > 155) {
+                    throw new IOException(name + " is too long for a tar archive");
+                }
+                if (nameBytes.length <= 100) {
+                    break;
+                }
+                split = name.indexOf('/', split + 1);
+            }
+        }
+        System.arraycopy(nameBytes, 0, header, 0, nameBytes.length);
+        putOctal(header, 100, 8, 0644);
+        putOctal(header, 108, 8, 0);
+        putOctal(header, 116, 8, 0);
+        putOctal(header, 124, 12, size);
+        putOctal(header, 136, 12, time / 1000);
+        Arrays.fill(header, 148, 156, (byte) ' ');
+        header[156] = '0';
+        System.arraycopy("ustar\0".getBytes(StandardCharsets.US_ASCII), 0, header, 257, 6);
+        header[263] = '0';
+        header[264] = '0';
+        System.arraycopy(prefixBytes, 0, header, 345, prefixBytes.length);
+        long checksum = 0;
+        for (byte b : header) {
+            checksum += b & 0xff;
+        }
+        putOctal(header, 148, 7, checksum);
+        out.write(header);
+    }
+
+    /**
+     * Write the given value as a zero-padded octal number, followed by a
+     * NUL, into a field of the given length.
+     */
+    private static void putOctal(byte[] header, int offset, int length, long value) {
+        String digits = Long.toOctalString(value);
+        int pad = length - 1 - digits.length();
+        for (int i = 0; i < pad; i++) {
+            header[offset + i] = '0';
+        }
+        for (int i = 0; i < digits.length(); i++) {
+            header[offset + pad + i] = (byte) digits.charAt(i);
+        }
+        header[offset + length - 1] = 0;
+    }
+}
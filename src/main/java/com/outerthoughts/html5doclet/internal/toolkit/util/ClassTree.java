@@ -285,7 +285,7 @@ public class ClassTree {
      * @param cd interface whose implementing-classes list is required.
      */
     public List<ClassDoc> implementingclasses(ClassDoc cd) {
-        List<ClassDoc> result = get(implementingclasses, cd);
+        List<ClassDoc> result = new ArrayList<ClassDoc>(get(implementingclasses, cd));
         List<ClassDoc> subinterfaces = allSubs(cd, false);
 
         //If class x implements a subinterface of cd, then it follows
@@ -337,7 +337,7 @@ public class ClassTree {
      * enum tree.
      */
     public List<ClassDoc> allSubs(ClassDoc cd, boolean isEnum) {
-        List<ClassDoc> list = subs(cd, isEnum);
+        List<ClassDoc> list = new ArrayList<ClassDoc>(subs(cd, isEnum));
         for (int i = 0; i < list.size(); i++) {
             cd = list.get(i);
             List<ClassDoc> tlist = subs(cd, isEnum);
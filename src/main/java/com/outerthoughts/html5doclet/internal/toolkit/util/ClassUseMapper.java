@@ -26,12 +26,27 @@
 package com.outerthoughts.html5doclet.internal.toolkit.util;
 
 import java.util.*;
+import java.util.concurrent.*;
 
 import com.sun.javadoc.*;
+import com.outerthoughts.html5doclet.internal.toolkit.Configuration;
 
 /**
  * Map all class uses for a given class.
  *
+ * <p>Each documented class is given a dense integer id, the classes of a
+ * package having consecutive ids.  The uses of the classes of each package
+ * are kept in a table of their own, where the uses of each class are
+ * stored next to each other in the order in which they were found, tagged
+ * with their kind.  Uses of classes that are not documented are dropped,
+ * since no page shows them.  When the run uses several threads, the
+ * classes are split into chunks whose uses are gathered concurrently and
+ * merged in document order, so the tables are the same for any number of
+ * threads.
+ *
+ * <p>The pages of a package only read the table of that package, so the
+ * table can be released once they are written, see {@link #release}.
+ *
  *  <p><b>This is NOT part of any supported API.
  *  If you write code that depends on this, you do so at your own risk.
  *  This code and its internal interfaces are subject to change or
@@ -42,228 +57,400 @@ import com.sun.javadoc.*;
  */
 public class ClassUseMapper {
 
-    private final ClassTree classtree;
-
     /**
-     * Mapping of ClassDocs to set of PackageDoc used by that class.
-     * Entries may be null.
+     * The kinds of use of a class.
      */
-    public Map<String,Set<PackageDoc>> classToPackage = new HashMap<String,Set<PackageDoc>>();
+    public enum Use {
+        /** Direct or indirect subclasses of a class. */
+        SUBCLASS,
+        /** Direct or indirect subinterfaces of an interface. */
+        SUBINTERFACE,
+        /** Classes that implement an interface, directly or not. */
+        IMPLEMENTING_CLASS,
+        /** Packages annotated with an annotation type. */
+        PACKAGE_ANNOTATION,
+        /** Classes that use a class in the bounds of their type parameters. */
+        CLASS_TYPE_PARAMETER,
+        /** Classes annotated with an annotation type. */
+        CLASS_ANNOTATION,
+        /** Fields declared as a class. */
+        FIELD,
+        /** Fields that use a class as a type argument of their type. */
+        FIELD_TYPE_PARAMETER,
+        /** Fields annotated with an annotation type. */
+        FIELD_ANNOTATION,
+        /** Methods returning a class. */
+        METHOD_RETURN,
+        /** Methods that use a class as a type argument of their return type. */
+        METHOD_RETURN_TYPE_PARAMETER,
+        /** Methods having a class as an argument. */
+        METHOD_ARGS,
+        /** Methods that use a class as a type argument of an argument. */
+        METHOD_ARG_TYPE_PARAMETER,
+        /** Methods which throw a class. */
+        METHOD_THROWS,
+        /** Methods that use a class in the bounds of their type parameters. */
+        METHOD_TYPE_PARAMETER,
+        /** Methods annotated with an annotation type. */
+        METHOD_ANNOTATION,
+        /** Methods with a parameter annotated with an annotation type. */
+        METHOD_PARAMETER_ANNOTATION,
+        /** Constructors having a class as an argument. */
+        CONSTRUCTOR_ARGS,
+        /** Constructors that use a class as a type argument of an argument. */
+        CONSTRUCTOR_ARG_TYPE_PARAMETER,
+        /** Constructors which throw a class. */
+        CONSTRUCTOR_THROWS,
+        /** Constructors annotated with an annotation type. */
+        CONSTRUCTOR_ANNOTATION,
+        /** Constructors with a parameter annotated with an annotation type. */
+        CONSTRUCTOR_PARAMETER_ANNOTATION
+    }
 
-    /**
-     * Mapping of Annotations to set of PackageDoc that use the annotation.
-     */
-    public Map<String,List<PackageDoc>> classToPackageAnnotations = new HashMap<String,List<PackageDoc>>();
+    private static final Use[] USES = Use.values();
 
     /**
-     * Mapping of ClassDocs to set of ClassDoc used by that class.
-     * Entries may be null.
+     * The number of classes whose uses are gathered by one task.
      */
-    public Map<String,Set<ClassDoc>> classToClass = new HashMap<String,Set<ClassDoc>>();
+    private static final int CHUNK_SIZE = 32;
 
-    /**
-     * Mapping of ClassDocs to list of ClassDoc which are direct or
-     * indirect subclasses of that class.
-     * Entries may be null.
-     */
-    public Map<String,List<ClassDoc>> classToSubclass = new HashMap<String,List<ClassDoc>>();
+    private final ClassTree classtree;
 
-    /**
-     * Mapping of ClassDocs to list of ClassDoc which are direct or
-     * indirect subinterfaces of that interface.
-     * Entries may be null.
-     */
-    public Map<String,List<ClassDoc>> classToSubinterface = new HashMap<String,List<ClassDoc>>();
+    private final Configuration configuration;
 
     /**
-     * Mapping of ClassDocs to list of ClassDoc which implement
-     * this interface.
-     * Entries may be null.
+     * The id of each documented class, by qualified name.
      */
-    public Map<String,List<ClassDoc>> classToImplementingClass = new HashMap<String,List<ClassDoc>>();
+    private final Map<String,Integer> ids = new HashMap<String,Integer>();
 
     /**
-     * Mapping of ClassDocs to list of FieldDoc declared as that class.
-     * Entries may be null.
+     * The packages of the documented classes, with the index of their table.
      */
-    public Map<String,List<FieldDoc>> classToField = new HashMap<String,List<FieldDoc>>();
+    private final Map<PackageDoc,Integer> packageIndex = new HashMap<PackageDoc,Integer>();
 
     /**
-     * Mapping of ClassDocs to list of MethodDoc returning that class.
-     * Entries may be null.
+     * The first id of the classes of each package, by table index, followed
+     * by the number of classes.
      */
-    public Map<String,List<MethodDoc>> classToMethodReturn = new HashMap<String,List<MethodDoc>>();
+    private final int[] firstIds;
 
     /**
-     * Mapping of ClassDocs to list of MethodDoc having that class
-     * as an arg.
-     * Entries may be null.
+     * The subclasses, subinterfaces and implementing classes of each
+     * documented class, by id.  Entries may be null.
      */
-    public Map<String,List<ExecutableMemberDoc>> classToMethodArgs = new HashMap<String,List<ExecutableMemberDoc>>();
+    private final ClassDoc[][] subclasses;
+    private final ClassDoc[][] subinterfaces;
+    private final ClassDoc[][] implementingClasses;
 
     /**
-     * Mapping of ClassDocs to list of MethodDoc which throws that class.
-     * Entries may be null.
+     * The uses of the class with id {@code i} are at the indices from
+     * {@code offsets[i] - base} to {@code offsets[i + 1] - base} of the
+     * table of its package, where {@code base} is the offset of the first
+     * class of the package.
      */
-    public Map<String,List<ExecutableMemberDoc>> classToMethodThrows = new HashMap<String,List<ExecutableMemberDoc>>();
+    private int[] offsets;
 
     /**
-     * Mapping of ClassDocs to list of ConstructorDoc having that class
-     * as an arg.
-     * Entries may be null.
+     * The table of each package, or null once it is released.
      */
-    public Map<String,List<ExecutableMemberDoc>> classToConstructorArgs = new HashMap<String,List<ExecutableMemberDoc>>();
+    private UseTable[] tables;
 
     /**
-     * Mapping of ClassDocs to list of ConstructorDoc which throws that class.
-     * Entries may be null.
+     * The uses of the classes of one package.
      */
-    public Map<String,List<ExecutableMemberDoc>> classToConstructorThrows = new HashMap<String,List<ExecutableMemberDoc>>();
+    private static class UseTable {
+        final int base;
+        final byte[] kinds;
+        final Doc[] users;
+
+        UseTable(int base, int size) {
+            this.base = base;
+            this.kinds = new byte[size];
+            this.users = new Doc[size];
+        }
+    }
 
     /**
-     * The mapping of AnnotationTypeDocs to constructors that use them.
+     * The uses found by one task, in the order in which they were found.
      */
-    public Map<String,List<ConstructorDoc>> classToConstructorAnnotations = new HashMap<String,List<ConstructorDoc>>();
+    private static class UseBuffer {
+        int size;
+        int[] targets = new int[256];
+        byte[] kinds = new byte[256];
+        Doc[] users = new Doc[256];
+
+        void add(int target, Use use, Doc user) {
+            if (size == targets.length) {
+                targets = Arrays.copyOf(targets, 2 * size);
+                kinds = Arrays.copyOf(kinds, 2 * size);
+                users = Arrays.copyOf(users, 2 * size);
+            }
+            targets[size] = target;
+            kinds[size] = (byte) use.ordinal();
+            users[size] = user;
+            size++;
+        }
+    }
 
-    /**
-     * The mapping of AnnotationTypeDocs to Constructor parameters that use them.
-     */
-    public Map<String,List<ExecutableMemberDoc>> classToConstructorParamAnnotation = new HashMap<String,List<ExecutableMemberDoc>>();
+    public ClassUseMapper(Configuration configuration, ClassTree classtree) {
+        this.configuration = configuration;
+        this.classtree = classtree;
+        ClassDoc[] classes = configuration.root.classes();
+        Map<PackageDoc,List<ClassDoc>> classesByPackage = new LinkedHashMap<PackageDoc,List<ClassDoc>>();
+        for (ClassDoc cd : classes) {
+            List<ClassDoc> list = classesByPackage.get(cd.containingPackage());
+            if (list == null) {
+                list = new ArrayList<ClassDoc>();
+                classesByPackage.put(cd.containingPackage(), list);
+            }
+            list.add(cd);
+        }
+        firstIds = new int[classesByPackage.size() + 1];
+        int id = 0;
+        for (Map.Entry<PackageDoc,List<ClassDoc>> entry : classesByPackage.entrySet()) {
+            firstIds[packageIndex.size()] = id;
+            packageIndex.put(entry.getKey(), packageIndex.size());
+            for (ClassDoc cd : entry.getValue()) {
+                ids.put(configuration.docIndex.qualifiedName(cd), id++);
+            }
+        }
+        firstIds[packageIndex.size()] = id;
+        subclasses = new ClassDoc[classes.length][];
+        subinterfaces = new ClassDoc[classes.length][];
+        implementingClasses = new ClassDoc[classes.length][];
 
-    /**
-     * The mapping of ClassDocs to Constructor arguments that use them as type parameters.
-     */
-    public Map<String,List<ExecutableMemberDoc>> classToConstructorDocArgTypeParam = new HashMap<String,List<ExecutableMemberDoc>>();
+        // Map subclassing, subinterfacing implementing, ...
+        Map<ClassDoc,Collection<ClassDoc>> subclassMap = new HashMap<ClassDoc,Collection<ClassDoc>>();
+        Map<ClassDoc,Collection<ClassDoc>> subinterfaceMap = new HashMap<ClassDoc,Collection<ClassDoc>>();
+        Map<ClassDoc,Collection<ClassDoc>> implementingMap = new HashMap<ClassDoc,Collection<ClassDoc>>();
+        for (ClassDoc cd : classtree.baseclasses()) {
+            subclasses(subclassMap, cd);
+        }
+        for (ClassDoc cd : classtree.baseinterfaces()) {
+            // does subinterfacing as side-effect
+            implementingClasses(subclassMap, subinterfaceMap, implementingMap, cd);
+        }
 
-    /**
-     * The mapping of ClassDocs to ClassDocs that use them as type parameters.
-     */
-    public Map<String,List<ClassDoc>> classToClassTypeParam = new HashMap<String,List<ClassDoc>>();
+        // Map methods, fields, constructors using a class.
+        merge(id, gather(classes));
+    }
 
     /**
-     * The mapping of AnnotationTypeDocs to ClassDocs that use them.
+     * Return the uses of the given kind of the given class, sorted by
+     * the order in which they were found.
+     *
+     * @param use the kind of use.
+     * @param cd  the class that is used.
      */
-    public Map<String,List<ClassDoc>> classToClassAnnotations = new HashMap<String,List<ClassDoc>>();
+    public List<Doc> getUses(Use use, ClassDoc cd) {
+        int id = id(cd);
+        if (id < 0) {
+            return new ArrayList<Doc>();
+        }
+        ClassDoc[] closure = closure(use, id);
+        if (closure != null) {
+            return new ArrayList<Doc>(Arrays.asList(closure));
+        }
+        List<Doc> list = new ArrayList<Doc>();
+        UseTable table = table(id);
+        if (table != null) {
+            for (int i = offsets[id] - table.base; i < offsets[id + 1] - table.base; i++) {
+                if (table.kinds[i] == use.ordinal()) {
+                    list.add(table.users[i]);
+                }
+            }
+        }
+        return list;
+    }
 
     /**
-     * The mapping of ClassDocs to ExecutableMemberDocs that use them as type parameters.
+     * Return true if the given class has uses of the given kind.
+     *
+     * @param use the kind of use.
+     * @param cd  the class that is used.
      */
-    public Map<String,List<MethodDoc>> classToExecMemberDocTypeParam = new HashMap<String,List<MethodDoc>>();
+    public boolean hasUses(Use use, ClassDoc cd) {
+        int id = id(cd);
+        if (id < 0) {
+            return false;
+        }
+        ClassDoc[] closure = closure(use, id);
+        if (closure != null) {
+            return true;
+        }
+        UseTable table = table(id);
+        if (table != null) {
+            for (int i = offsets[id] - table.base; i < offsets[id + 1] - table.base; i++) {
+                if (table.kinds[i] == use.ordinal()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
 
     /**
-     * The mapping of ClassDocs to ExecutableMemberDocs arguments that use them as type parameters.
+     * Return the classes that use the given class, other than through
+     * the annotations of packages.
+     *
+     * @param cd the class that is used.
      */
-    public Map<String,List<ExecutableMemberDoc>> classToExecMemberDocArgTypeParam = new HashMap<String,List<ExecutableMemberDoc>>();
+    public Set<ClassDoc> getUsingClasses(ClassDoc cd) {
+        Set<ClassDoc> classes = new TreeSet<ClassDoc>();
+        int id = id(cd);
+        if (id >= 0) {
+            for (Use use : Arrays.asList(Use.SUBCLASS, Use.SUBINTERFACE, Use.IMPLEMENTING_CLASS)) {
+                ClassDoc[] closure = closure(use, id);
+                if (closure != null) {
+                    classes.addAll(Arrays.asList(closure));
+                }
+            }
+            UseTable table = table(id);
+            if (table != null) {
+                for (int i = offsets[id] - table.base; i < offsets[id + 1] - table.base; i++) {
+                    Doc user = table.users[i];
+                    if (table.kinds[i] != Use.PACKAGE_ANNOTATION.ordinal()) {
+                        classes.add(user instanceof MemberDoc ?
+                                ((MemberDoc) user).containingClass() :
+                                (ClassDoc) user);
+                    }
+                }
+            }
+        }
+        return classes;
+    }
 
     /**
-     * The mapping of AnnotationTypeDocs to ExecutableMemberDocs that use them.
+     * Return the packages that use the given class, other than through
+     * their own annotations.
+     *
+     * @param cd the class that is used.
      */
-    public Map<String,List<MethodDoc>> classToExecMemberDocAnnotations = new HashMap<String,List<MethodDoc>>();
+    public Set<PackageDoc> getUsingPackages(ClassDoc cd) {
+        Set<PackageDoc> packages = new TreeSet<PackageDoc>();
+        int id = id(cd);
+        if (id >= 0) {
+            for (Use use : Arrays.asList(Use.SUBCLASS, Use.SUBINTERFACE, Use.IMPLEMENTING_CLASS)) {
+                ClassDoc[] closure = closure(use, id);
+                if (closure != null) {
+                    for (ClassDoc cls : closure) {
+                        packages.add(cls.containingPackage());
+                    }
+                }
+            }
+            UseTable table = table(id);
+            if (table != null) {
+                for (int i = offsets[id] - table.base; i < offsets[id + 1] - table.base; i++) {
+                    if (table.kinds[i] != Use.PACKAGE_ANNOTATION.ordinal()) {
+                        packages.add(((ProgramElementDoc) table.users[i]).containingPackage());
+                    }
+                }
+            }
+        }
+        return packages;
+    }
 
     /**
-     * The mapping of ClassDocs to ExecutableMemberDocs that have return type
-     * with type parameters of that class.
+     * Release the uses of the classes of the given package, once the pages
+     * that show them are written.  The classes of the package have no uses
+     * afterwards.
+     *
+     * @param pkg the package whose uses are no longer needed.
      */
-    public Map<String,List<MethodDoc>> classToExecMemberDocReturnTypeParam = new HashMap<String,List<MethodDoc>>();
+    public void release(PackageDoc pkg) {
+        Integer index = packageIndex.get(pkg);
+        if (index == null) {
+            return;
+        }
+        tables[index] = null;
+        for (int id = firstIds[index]; id < firstIds[index + 1]; id++) {
+            subclasses[id] = null;
+            subinterfaces[id] = null;
+            implementingClasses[id] = null;
+        }
+    }
 
     /**
-     * The mapping of AnnotationTypeDocs to MethodDoc parameters that use them.
+     * Return the table that holds the uses of the class with the given
+     * id, or null if it was released.
      */
-    public Map<String,List<ExecutableMemberDoc>> classToExecMemberDocParamAnnotation = new HashMap<String,List<ExecutableMemberDoc>>();
+    private UseTable table(int id) {
+        int index = Arrays.binarySearch(firstIds, id);
+        return tables[index >= 0 ? index : -index - 2];
+    }
 
     /**
-     * The mapping of ClassDocs to FieldDocs that use them as type parameters.
+     * Return the id of the given class, or -1 if it is not documented.
      */
-    public Map<String,List<FieldDoc>> classToFieldDocTypeParam = new HashMap<String,List<FieldDoc>>();
+    private int id(ClassDoc cd) {
+        if (cd == null) {
+            return -1;
+        }
+        Integer id = ids.get(configuration.docIndex.qualifiedName(cd));
+        return id != null ? id : -1;
+    }
+
+    private ClassDoc[] closure(Use use, int id) {
+        switch (use) {
+            case SUBCLASS:
+                return subclasses[id];
+            case SUBINTERFACE:
+                return subinterfaces[id];
+            case IMPLEMENTING_CLASS:
+                return implementingClasses[id];
+            default:
+                return null;
+        }
+    }
 
     /**
-     * The mapping of AnnotationTypeDocs to FieldDocs that use them.
+     * Record the given closure of the given class, if it is documented.
      */
-    public Map<String,List<FieldDoc>> annotationToFieldDoc = new HashMap<String,List<FieldDoc>>();
-
-
-    public ClassUseMapper(RootDoc root, ClassTree classtree) {
-        this.classtree = classtree;
-
-        // Map subclassing, subinterfacing implementing, ...
-        for (Iterator<ClassDoc> it = classtree.baseclasses().iterator(); it.hasNext();) {
-            subclasses(it.next());
-        }
-        for (Iterator<ClassDoc> it = classtree.baseinterfaces().iterator(); it.hasNext();) {
-            // does subinterfacing as side-effect
-            implementingClasses(it.next());
-        }
-        // Map methods, fields, constructors using a class.
-        ClassDoc[] classes = root.classes();
-        for (int i = 0; i < classes.length; i++) {
-            PackageDoc pkg = classes[i].containingPackage();
-            mapAnnotations(classToPackageAnnotations, pkg, pkg);
-            ClassDoc cd = classes[i];
-            mapTypeParameters(classToClassTypeParam, cd, cd);
-            mapAnnotations(classToClassAnnotations, cd, cd);
-            FieldDoc[] fields = cd.fields();
-            for (int j = 0; j < fields.length; j++) {
-                FieldDoc fd = fields[j];
-                mapTypeParameters(classToFieldDocTypeParam, fd, fd);
-                mapAnnotations(annotationToFieldDoc, fd, fd);
-                if (! fd.type().isPrimitive()) {
-                    add(classToField, fd.type().asClassDoc(), fd);
-                }
-            }
-            ConstructorDoc[] cons = cd.constructors();
-            for (int j = 0; j < cons.length; j++) {
-                mapAnnotations(classToConstructorAnnotations, cons[j], cons[j]);
-                mapExecutable(cons[j]);
-            }
-            MethodDoc[] meths = cd.methods();
-            for (int j = 0; j < meths.length; j++) {
-                MethodDoc md = meths[j];
-                mapExecutable(md);
-                mapTypeParameters(classToExecMemberDocTypeParam, md, md);
-                mapAnnotations(classToExecMemberDocAnnotations, md, md);
-                if (! (md.returnType().isPrimitive() || md.returnType() instanceof TypeVariable)) {
-                    mapTypeParameters(classToExecMemberDocReturnTypeParam,
-                        md.returnType(), md);
-                    add(classToMethodReturn, md.returnType().asClassDoc(), md);
-                }
-            }
+    private void setClosure(ClassDoc[][] closures, ClassDoc cd, Collection<ClassDoc> classes) {
+        int id = id(cd);
+        if (id >= 0) {
+            closures[id] = classes.toArray(new ClassDoc[classes.size()]);
         }
     }
 
     /**
-     * Return all subclasses of a class AND fill-in classToSubclass map.
+     * Return all subclasses of a class AND fill-in the subclass table.
      */
-    private Collection<ClassDoc> subclasses(ClassDoc cd) {
-        Collection<ClassDoc> ret = classToSubclass.get(cd.qualifiedName());
+    private Collection<ClassDoc> subclasses(Map<ClassDoc,Collection<ClassDoc>> subclassMap,
+            ClassDoc cd) {
+        Collection<ClassDoc> ret = subclassMap.get(cd);
         if (ret == null) {
             ret = new TreeSet<ClassDoc>();
             List<ClassDoc> subs = classtree.subclasses(cd);
             if (subs != null) {
                 ret.addAll(subs);
-                for (Iterator<ClassDoc> it = subs.iterator(); it.hasNext();) {
-                    ret.addAll(subclasses(it.next()));
+                for (ClassDoc sub : subs) {
+                    ret.addAll(subclasses(subclassMap, sub));
                 }
             }
-            addAll(classToSubclass, cd, ret);
+            subclassMap.put(cd, ret);
+            setClosure(subclasses, cd, ret);
         }
         return ret;
     }
 
     /**
-     * Return all subinterfaces of an interface AND fill-in classToSubinterface map.
+     * Return all subinterfaces of an interface AND fill-in the subinterface table.
      */
-    private Collection<ClassDoc> subinterfaces(ClassDoc cd) {
-        Collection<ClassDoc> ret = classToSubinterface.get(cd.qualifiedName());
+    private Collection<ClassDoc> subinterfaces(Map<ClassDoc,Collection<ClassDoc>> subinterfaceMap,
+            ClassDoc cd) {
+        Collection<ClassDoc> ret = subinterfaceMap.get(cd);
         if (ret == null) {
             ret = new TreeSet<ClassDoc>();
             List<ClassDoc> subs = classtree.subinterfaces(cd);
             if (subs != null) {
                 ret.addAll(subs);
-                for (Iterator<ClassDoc> it = subs.iterator(); it.hasNext();) {
-                    ret.addAll(subinterfaces(it.next()));
+                for (ClassDoc sub : subs) {
+                    ret.addAll(subinterfaces(subinterfaceMap, sub));
                 }
             }
-            addAll(classToSubinterface, cd, ret);
+            subinterfaceMap.put(cd, ret);
+            setClosure(subinterfaces, cd, ret);
         }
         return ret;
     }
@@ -271,33 +458,175 @@ public class ClassUseMapper {
     /**
      * Return all implementing classes of an interface (including
      * all subclasses of implementing classes and all classes
-     * implementing subinterfaces) AND fill-in both classToImplementingClass
-     * and classToSubinterface maps.
+     * implementing subinterfaces) AND fill-in both the implementing
+     * class and the subinterface tables.
      */
-    private Collection<ClassDoc> implementingClasses(ClassDoc cd) {
-        Collection<ClassDoc> ret = classToImplementingClass.get(cd.qualifiedName());
+    private Collection<ClassDoc> implementingClasses(Map<ClassDoc,Collection<ClassDoc>> subclassMap,
+            Map<ClassDoc,Collection<ClassDoc>> subinterfaceMap,
+            Map<ClassDoc,Collection<ClassDoc>> implementingMap, ClassDoc cd) {
+        Collection<ClassDoc> ret = implementingMap.get(cd);
         if (ret == null) {
             ret = new TreeSet<ClassDoc>();
             List<ClassDoc> impl = classtree.implementingclasses(cd);
             if (impl != null) {
                 ret.addAll(impl);
-                for (Iterator<ClassDoc> it = impl.iterator(); it.hasNext();) {
-                    ret.addAll(subclasses(it.next()));
+                for (ClassDoc cls : impl) {
+                    ret.addAll(subclasses(subclassMap, cls));
                 }
             }
-            for (Iterator<ClassDoc> it = subinterfaces(cd).iterator(); it.hasNext();) {
-                ret.addAll(implementingClasses(it.next()));
+            for (ClassDoc sub : subinterfaces(subinterfaceMap, cd)) {
+                ret.addAll(implementingClasses(subclassMap, subinterfaceMap, implementingMap, sub));
             }
-            addAll(classToImplementingClass, cd, ret);
+            implementingMap.put(cd, ret);
+            setClosure(implementingClasses, cd, ret);
         }
         return ret;
     }
 
+    /**
+     * Gather the uses made by the given classes, in chunks of
+     * {@link #CHUNK_SIZE} classes.  The chunks are gathered concurrently
+     * if the run uses several threads, since the javadoc model is then
+     * preloaded.
+     *
+     * @return the uses found in each chunk.
+     */
+    private UseBuffer[] gather(final ClassDoc[] classes) {
+        int chunks = (classes.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        final UseBuffer[] buffers = new UseBuffer[chunks];
+        if (configuration.threads <= 1 || chunks <= 1) {
+            for (int chunk = 0; chunk < chunks; chunk++) {
+                buffers[chunk] = gather(classes, chunk * CHUNK_SIZE,
+                    Math.min(classes.length, (chunk + 1) * CHUNK_SIZE));
+            }
+            return buffers;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(configuration.threads, chunks), new ThreadFactory() {
+                    private int count = 0;
+                    public synchronized Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, "doclet-class-use-" + (++count));
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+        try {
+            List<Future<UseBuffer>> futures = new ArrayList<Future<UseBuffer>>(chunks);
+            for (int chunk = 0; chunk < chunks; chunk++) {
+                final int from = chunk * CHUNK_SIZE;
+                final int to = Math.min(classes.length, from + CHUNK_SIZE);
+                futures.add(executor.submit(new Callable<UseBuffer>() {
+                    public UseBuffer call() {
+                        return gather(classes, from, to);
+                    }
+                }));
+            }
+            for (int chunk = 0; chunk < chunks; chunk++) {
+                try {
+                    buffers[chunk] = futures.get(chunk).get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof DocletAbortException) {
+                        throw (DocletAbortException) cause;
+                    }
+                    throw new DocletAbortException(cause);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new DocletAbortException(e);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return buffers;
+    }
+
+    /**
+     * Gather the uses made by the classes from index {@code from} to
+     * {@code to} of the given array.
+     */
+    private UseBuffer gather(ClassDoc[] classes, int from, int to) {
+        UseBuffer buffer = new UseBuffer();
+        DocIndex docIndex = configuration.docIndex;
+        for (int i = from; i < to; i++) {
+            PackageDoc pkg = classes[i].containingPackage();
+            mapAnnotations(buffer, Use.PACKAGE_ANNOTATION, pkg);
+            ClassDoc cd = classes[i];
+            mapTypeParameters(buffer, Use.CLASS_TYPE_PARAMETER, cd, cd);
+            mapAnnotations(buffer, Use.CLASS_ANNOTATION, cd, cd);
+            FieldDoc[] fields = docIndex.fields(cd, true);
+            for (int j = 0; j < fields.length; j++) {
+                FieldDoc fd = fields[j];
+                mapTypeParameters(buffer, Use.FIELD_TYPE_PARAMETER, fd, fd);
+                mapAnnotations(buffer, Use.FIELD_ANNOTATION, fd, fd);
+                if (! fd.type().isPrimitive()) {
+                    add(buffer, Use.FIELD, fd.type().asClassDoc(), fd);
+                }
+            }
+            ConstructorDoc[] cons = docIndex.constructors(cd);
+            for (int j = 0; j < cons.length; j++) {
+                mapAnnotations(buffer, Use.CONSTRUCTOR_ANNOTATION, cons[j], cons[j]);
+                mapExecutable(buffer, cons[j]);
+            }
+            MethodDoc[] meths = docIndex.methods(cd, true);
+            for (int j = 0; j < meths.length; j++) {
+                MethodDoc md = meths[j];
+                mapExecutable(buffer, md);
+                mapTypeParameters(buffer, Use.METHOD_TYPE_PARAMETER, md, md);
+                mapAnnotations(buffer, Use.METHOD_ANNOTATION, md, md);
+                if (! (md.returnType().isPrimitive() || md.returnType() instanceof TypeVariable)) {
+                    mapTypeParameters(buffer, Use.METHOD_RETURN_TYPE_PARAMETER,
+                        md.returnType(), md);
+                    add(buffer, Use.METHOD_RETURN, md.returnType().asClassDoc(), md);
+                }
+            }
+        }
+        return buffer;
+    }
+
+    /**
+     * Merge the uses gathered in each chunk into the tables of the
+     * packages, in the order of the chunks.
+     */
+    private void merge(int count, UseBuffer[] buffers) {
+        offsets = new int[count + 1];
+        for (UseBuffer buffer : buffers) {
+            for (int i = 0; i < buffer.size; i++) {
+                offsets[buffer.targets[i] + 1]++;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        int packages = firstIds.length - 1;
+        tables = new UseTable[packages];
+        UseTable[] tableOf = new UseTable[count];
+        for (int p = 0; p < packages; p++) {
+            int base = offsets[firstIds[p]];
+            tables[p] = new UseTable(base, offsets[firstIds[p + 1]] - base);
+            for (int id = firstIds[p]; id < firstIds[p + 1]; id++) {
+                tableOf[id] = tables[p];
+            }
+        }
+        int[] next = Arrays.copyOf(offsets, count);
+        for (int b = 0; b < buffers.length; b++) {
+            UseBuffer buffer = buffers[b];
+            for (int i = 0; i < buffer.size; i++) {
+                int target = buffer.targets[i];
+                UseTable table = tableOf[target];
+                int index = next[target]++ - table.base;
+                table.kinds[index] = buffer.kinds[i];
+                table.users[index] = buffer.users[i];
+            }
+            buffers[b] = null;
+        }
+    }
+
     /**
      * Determine classes used by a method or constructor, so they can be
      * inverse mapped.
      */
-    private void mapExecutable(ExecutableMemberDoc em) {
+    private void mapExecutable(UseBuffer buffer, ExecutableMemberDoc em) {
         Parameter[] params = em.parameters();
         boolean isConstructor = em.isConstructor();
         List<Type> classArgs = new ArrayList<Type>();
@@ -307,82 +636,30 @@ public class ClassUseMapper {
             if ((! params[k].type().isPrimitive()) &&
                  ! classArgs.contains(pcd) &&
                  ! (pcd instanceof TypeVariable)) {
-                add(isConstructor? classToConstructorArgs :classToMethodArgs,
+                add(buffer, isConstructor ? Use.CONSTRUCTOR_ARGS : Use.METHOD_ARGS,
                         pcd.asClassDoc(), em);
                 classArgs.add(pcd);
-                mapTypeParameters(isConstructor?
-                   classToConstructorDocArgTypeParam : classToExecMemberDocArgTypeParam,
+                mapTypeParameters(buffer, isConstructor ?
+                   Use.CONSTRUCTOR_ARG_TYPE_PARAMETER : Use.METHOD_ARG_TYPE_PARAMETER,
                    pcd, em);
             }
-            mapAnnotations(
+            mapAnnotations(buffer,
                 isConstructor ?
-                    classToConstructorParamAnnotation :
-                    classToExecMemberDocParamAnnotation,
+                    Use.CONSTRUCTOR_PARAMETER_ANNOTATION :
+                    Use.METHOD_PARAMETER_ANNOTATION,
                 params[k], em);
         }
         ClassDoc[] thr = em.thrownExceptions();
         for (int k = 0; k < thr.length; k++) {
-            add(isConstructor? classToConstructorThrows : classToMethodThrows,
+            add(buffer, isConstructor ? Use.CONSTRUCTOR_THROWS : Use.METHOD_THROWS,
                     thr[k], em);
         }
     }
 
-    private <T> List<T> refList(Map<String,List<T>> map, ClassDoc cd) {
-        List<T> list = map.get(cd.qualifiedName());
-        if (list == null) {
-            List<T> l = new ArrayList<T>();
-            list = l;
-            map.put(cd.qualifiedName(), list);
-        }
-        return list;
-    }
-
-    private Set<PackageDoc> packageSet(ClassDoc cd) {
-        Set<PackageDoc> pkgSet = classToPackage.get(cd.qualifiedName());
-        if (pkgSet == null) {
-            pkgSet = new TreeSet<PackageDoc>();
-            classToPackage.put(cd.qualifiedName(), pkgSet);
-        }
-        return pkgSet;
-    }
-
-    private Set<ClassDoc> classSet(ClassDoc cd) {
-        Set<ClassDoc> clsSet = classToClass.get(cd.qualifiedName());
-        if (clsSet == null) {
-            Set<ClassDoc> s = new TreeSet<ClassDoc>();
-            clsSet = s;
-            classToClass.put(cd.qualifiedName(), clsSet);
-        }
-        return clsSet;
-    }
-
-    private <T extends ProgramElementDoc> void add(Map<String,List<T>> map, ClassDoc cd, T ref) {
-        // add to specified map
-        refList(map, cd).add(ref);
-
-        // add ref's package to package map and class map
-        packageSet(cd).add(ref.containingPackage());
-
-        classSet(cd).add(ref instanceof MemberDoc?
-                ((MemberDoc)ref).containingClass() :
-                    (ClassDoc)ref);
-    }
-
-    private void addAll(Map<String,List<ClassDoc>> map, ClassDoc cd, Collection<ClassDoc> refs) {
-        if (refs == null) {
-            return;
-        }
-        // add to specified map
-        refList(map, cd).addAll(refs);
-
-        Set<PackageDoc> pkgSet = packageSet(cd);
-        Set<ClassDoc> clsSet = classSet(cd);
-        // add ref's package to package map and class map
-        for (Iterator<ClassDoc> it = refs.iterator(); it.hasNext();) {
-            ClassDoc cls = it.next();
-            pkgSet.add(cls.containingPackage());
-            clsSet.add(cls);
-
+    private void add(UseBuffer buffer, Use use, ClassDoc cd, Doc ref) {
+        int id = id(cd);
+        if (id >= 0) {
+            buffer.add(id, use, ref);
         }
     }
 
@@ -390,36 +667,37 @@ public class ClassUseMapper {
      * Map the ClassDocs to the ProgramElementDocs that use them as
      * type parameters.
      *
-     * @param map the map the insert the information into.
+     * @param buffer the buffer to insert the information into.
+     * @param use the kind of use.
      * @param doc the doc whose type parameters are being checked.
      * @param holder the holder that owns the type parameters.
      */
-    private <T extends ProgramElementDoc> void mapTypeParameters(Map<String,List<T>> map, Object doc,
-            T holder) {
+    private void mapTypeParameters(UseBuffer buffer, Use use, Object doc,
+            ProgramElementDoc holder) {
         TypeVariable[] typeVariables;
         if (doc instanceof ClassDoc) {
             typeVariables = ((ClassDoc) doc).typeParameters();
         } else if (doc instanceof WildcardType) {
             Type[] extendsBounds = ((WildcardType) doc).extendsBounds();
             for (int k = 0; k < extendsBounds.length; k++) {
-                addTypeParameterToMap(map, extendsBounds[k], holder);
+                addTypeParameterToMap(buffer, use, extendsBounds[k], holder);
             }
             Type[] superBounds = ((WildcardType) doc).superBounds();
             for (int k = 0; k < superBounds.length; k++) {
-                addTypeParameterToMap(map, superBounds[k], holder);
+                addTypeParameterToMap(buffer, use, superBounds[k], holder);
             }
             return;
         } else if (doc instanceof ParameterizedType) {
             Type[] typeArguments = ((ParameterizedType) doc).typeArguments();
             for (int k = 0; k < typeArguments.length; k++) {
-                addTypeParameterToMap(map, typeArguments[k], holder);
+                addTypeParameterToMap(buffer, use, typeArguments[k], holder);
             }
             return;
         } else if (doc instanceof ExecutableMemberDoc) {
             typeVariables = ((ExecutableMemberDoc) doc).typeParameters();
         } else if (doc instanceof FieldDoc) {
             Type fieldType = ((FieldDoc) doc).type();
-            mapTypeParameters(map, fieldType, holder);
+            mapTypeParameters(buffer, use, fieldType, holder);
             return;
         } else {
             return;
@@ -427,7 +705,7 @@ public class ClassUseMapper {
         for (int i = 0; i < typeVariables.length; i++) {
             Type[] bounds = typeVariables[i].bounds();
             for (int j = 0; j < bounds.length; j++) {
-                addTypeParameterToMap(map, bounds[j], holder);
+                addTypeParameterToMap(buffer, use, bounds[j], holder);
             }
         }
     }
@@ -436,59 +714,47 @@ public class ClassUseMapper {
      * Map the AnnotationType to the ProgramElementDocs that use them as
      * type parameters.
      *
-     * @param map the map the insert the information into.
+     * @param buffer the buffer to insert the information into.
+     * @param use the kind of use.
      * @param doc the doc whose type parameters are being checked.
      * @param holder the holder that owns the type parameters.
      */
-    private <T extends ProgramElementDoc> void mapAnnotations(Map<String,List<T>> map, Object doc,
-            T holder) {
+    private void mapAnnotations(UseBuffer buffer, Use use, Object doc,
+            ProgramElementDoc holder) {
         AnnotationDesc[] annotations;
-        boolean isPackage = false;
         if (doc instanceof ProgramElementDoc) {
             annotations = ((ProgramElementDoc) doc).annotations();
-        } else if (doc instanceof PackageDoc) {
-            annotations = ((PackageDoc) doc).annotations();
-            isPackage = true;
         } else if (doc instanceof Parameter) {
             annotations = ((Parameter) doc).annotations();
         } else {
             throw new DocletAbortException("should not happen");
         }
         for (int i = 0; i < annotations.length; i++) {
-            AnnotationTypeDoc annotationDoc = annotations[i].annotationType();
-            if (isPackage)
-                refList(map, annotationDoc).add(holder);
-            else
-                add(map, annotationDoc, holder);
+            add(buffer, use, annotations[i].annotationType(), holder);
         }
     }
 
-
     /**
-     * Map the AnnotationType to the ProgramElementDocs that use them as
-     * type parameters.
+     * Map the AnnotationType to the PackageDocs that use them.
      *
-     * @param map the map the insert the information into.
-     * @param doc the doc whose type parameters are being checked.
-     * @param holder the holder that owns the type parameters.
+     * @param buffer the buffer to insert the information into.
+     * @param use the kind of use.
+     * @param doc the package whose annotations are being checked.
      */
-    private <T extends PackageDoc> void mapAnnotations(Map<String,List<T>> map, PackageDoc doc,
-            T holder) {
-        AnnotationDesc[] annotations;
-        annotations = doc.annotations();
+    private void mapAnnotations(UseBuffer buffer, Use use, PackageDoc doc) {
+        AnnotationDesc[] annotations = doc.annotations();
         for (int i = 0; i < annotations.length; i++) {
-            AnnotationTypeDoc annotationDoc = annotations[i].annotationType();
-            refList(map, annotationDoc).add(holder);
+            add(buffer, use, annotations[i].annotationType(), doc);
         }
     }
 
-    private <T extends ProgramElementDoc> void addTypeParameterToMap(Map<String,List<T>> map, Type type,
-            T holder) {
+    private void addTypeParameterToMap(UseBuffer buffer, Use use, Type type,
+            ProgramElementDoc holder) {
         if (type instanceof ClassDoc) {
-            add(map, (ClassDoc) type, holder);
+            add(buffer, use, (ClassDoc) type, holder);
         } else if (type instanceof ParameterizedType) {
-            add(map, ((ParameterizedType) type).asClassDoc(), holder);
+            add(buffer, use, ((ParameterizedType) type).asClassDoc(), holder);
         }
-        mapTypeParameters(map, type, holder);
+        mapTypeParameters(buffer, use, type, holder);
     }
 }
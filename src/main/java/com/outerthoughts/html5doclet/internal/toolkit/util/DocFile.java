@@ -64,11 +64,22 @@ public abstract class DocFile {
         return DocFileFactory.getFactory(configuration).createFileForInput(file);
     }
 
-    /** Create a DocFile for a file that will be opened for writing. */
+    /**
+     * Create a DocFile for a file that will be opened for writing.  The file
+     * is written to the output sink of the configuration, if there is one.
+     */
     public static DocFile createFileForOutput(Configuration configuration, DocPath path) {
+        if (configuration.outputSink != null) {
+            return new SinkDocFile(configuration, configuration.outputSink, path);
+        }
         return DocFileFactory.getFactory(configuration).createFileForOutput(path);
     }
 
+    /** Release the file factory of the given configuration at the end of a run. */
+    public static void release(Configuration configuration) {
+        DocFileFactory.release(configuration);
+    }
+
     private final Configuration configuration;
 
     /**
@@ -74,6 +74,14 @@ abstract class DocFileFactory {
         return f;
     }
 
+    /**
+     * Forget the factory of the given configuration.  The factory refers
+     * to its configuration, which would otherwise keep the entry alive.
+     */
+    static synchronized void release(Configuration configuration) {
+        factories.remove(configuration);
+    }
+
     protected Configuration configuration;
 
     protected DocFileFactory(Configuration configuration) {
@@ -0,0 +1,266 @@
+/*
+ * Copyright (C) 2021, Thalia Nero
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  This particular file is
+ * designated as subject to the "Classpath" exception as provided in
+ * the LICENSE file that accompanies this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.outerthoughts.html5doclet.internal.toolkit.util;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.outerthoughts.html5doclet.internal.toolkit.Configuration;
+import com.sun.javadoc.*;
+
+/**
+ * An index over the javadoc model of the answers that the builders and
+ * writers ask for over and over while rendering: the members of each
+ * class and the doclet's own "dfu.hidden" and "dfu.shape" tags.
+ *
+ * <p>The javadoc API computes most of these on every call, by filtering
+ * the class members or the parsed tags into a new array.  The index is
+ * built once, on a single thread, for the documented classes and all of
+ * their supertypes.  Queries for other classes fall back to the javadoc
+ * API.  The member arrays are copied on every query, since callers are
+ * free to sort them.
+ *
+ * <p>The index holds the javadoc objects themselves, keyed by identity,
+ * and the doclet still renders from them.  It is not a model detached
+ * from com.sun.javadoc and cannot be saved across runs.
+ *
+ *  <p><b>This is NOT part of any supported API.
+ *  If you write code that depends on this, you do so at your own risk.
+ *  This code and its internal interfaces are subject to change or
+ *  deletion without notice.</b>
+ */
+public class DocIndex {
+
+    /**
+     * The tag that hides a class or member from the documentation.
+     */
+    public static final String HIDDEN_TAG = "dfu.hidden";
+
+    /**
+     * The tag that gives the shape in which references to a type are shown.
+     */
+    public static final String SHAPE_TAG = "dfu.shape";
+
+    private static final FieldDoc[] NO_FIELDS = new FieldDoc[0];
+    private static final AnnotationTypeElementDoc[] NO_ELEMENTS =
+        new AnnotationTypeElementDoc[0];
+
+    /**
+     * The indexed parts of a single class.
+     */
+    private static class ClassEntry {
+        final String shapeTemplate;
+        final boolean hidden;
+        final FieldDoc[] fields;
+        final FieldDoc[] allFields;
+        final MethodDoc[] methods;
+        final MethodDoc[] allMethods;
+        final ConstructorDoc[] constructors;
+        final ClassDoc[] innerClasses;
+        final ClassDoc[] allInnerClasses;
+        final FieldDoc[] enumConstants;
+        final AnnotationTypeElementDoc[] elements;
+        /** The members of the class that carry the hidden tag. */
+        final Set<Doc> hiddenMembers;
+
+        ClassEntry(ClassDoc cd) {
+            shapeTemplate = shapeTemplate(cd);
+            hidden = cd.tags(HIDDEN_TAG).length != 0;
+            fields = cd.fields(true);
+            allFields = cd.fields(false);
+            methods = cd.methods(true);
+            allMethods = cd.methods(false);
+            constructors = cd.constructors(true);
+            innerClasses = cd.innerClasses(true);
+            allInnerClasses = cd.innerClasses(false);
+            enumConstants = cd.isEnum() ? cd.enumConstants() : NO_FIELDS;
+            elements = cd.isAnnotationType() ?
+                ((AnnotationTypeDoc) cd).elements() : NO_ELEMENTS;
+
+            Set<Doc> hiddenSet = new HashSet<Doc>();
+            addHidden(hiddenSet, allFields);
+            addHidden(hiddenSet, allMethods);
+            addHidden(hiddenSet, cd.constructors(false));
+            addHidden(hiddenSet, allInnerClasses);
+            addHidden(hiddenSet, enumConstants);
+            addHidden(hiddenSet, elements);
+            hiddenMembers = hiddenSet.isEmpty() ?
+                Collections.<Doc>emptySet() : Collections.unmodifiableSet(hiddenSet);
+        }
+
+        private static void addHidden(Set<Doc> hiddenSet, Doc[] members) {
+            for (Doc member : members) {
+                if (member.tags(HIDDEN_TAG).length != 0) {
+                    hiddenSet.add(member);
+                }
+            }
+        }
+    }
+
+    private final Map<ClassDoc,ClassEntry> classes;
+
+    /**
+     * The qualified names of the classes, computed once per class.  Other
+     * classes are added when their name is first asked for.
+     */
+    private final ConcurrentMap<ClassDoc,String> qualifiedNames =
+            new ConcurrentHashMap<ClassDoc,String>();
+
+    /**
+     * Index the documented classes and their supertypes.
+     *
+     * @param configuration the configuration of the run.
+     */
+    public DocIndex(Configuration configuration) {
+        Map<ClassDoc,ClassEntry> map = new HashMap<ClassDoc,ClassEntry>();
+        for (ClassDoc cd : configuration.root.classes()) {
+            index(map, cd);
+        }
+        classes = Collections.unmodifiableMap(map);
+    }
+
+    private void index(Map<ClassDoc,ClassEntry> map, ClassDoc cd) {
+        if (cd == null || map.containsKey(cd)) {
+            return;
+        }
+        map.put(cd, new ClassEntry(cd));
+        qualifiedNames.put(cd, cd.qualifiedName());
+        index(map, cd.superclass());
+        for (ClassDoc intf : cd.interfaces()) {
+            index(map, intf);
+        }
+    }
+
+    /**
+     * Return the qualified name of the given class.
+     */
+    public String qualifiedName(ClassDoc cd) {
+        String name = qualifiedNames.get(cd);
+        if (name == null) {
+            name = cd.qualifiedName();
+            String prev = qualifiedNames.putIfAbsent(cd, name);
+            if (prev != null) {
+                name = prev;
+            }
+        }
+        return name;
+    }
+
+    /**
+     * Return true if the given class or member is tagged "dfu.hidden".
+     */
+    public boolean isHidden(Doc doc) {
+        ClassEntry entry;
+        if (doc instanceof ClassDoc) {
+            entry = classes.get(doc);
+            if (entry != null) {
+                return entry.hidden;
+            }
+        }
+        if (doc instanceof ProgramElementDoc) {
+            entry = classes.get(((ProgramElementDoc) doc).containingClass());
+            if (entry != null) {
+                return entry.hiddenMembers.contains(doc);
+            }
+        }
+        return doc.tags(HIDDEN_TAG).length != 0;
+    }
+
+    /**
+     * Return the "dfu.shape" template in the documentation of the given
+     * class, or null if it has none.
+     */
+    public String getShapeTemplate(ClassDoc cd) {
+        ClassEntry entry = classes.get(cd);
+        return entry != null ? entry.shapeTemplate : shapeTemplate(cd);
+    }
+
+    private static String shapeTemplate(ClassDoc cd) {
+        Tag[] shapes = cd.tags(SHAPE_TAG);
+        return shapes.length != 0 ? shapes[0].text() : null;
+    }
+
+    /**
+     * @see ClassDoc#fields(boolean)
+     */
+    public FieldDoc[] fields(ClassDoc cd, boolean filter) {
+        ClassEntry entry = classes.get(cd);
+        if (entry == null) {
+            return cd.fields(filter);
+        }
+        return (filter ? entry.fields : entry.allFields).clone();
+    }
+
+    /**
+     * @see ClassDoc#methods(boolean)
+     */
+    public MethodDoc[] methods(ClassDoc cd, boolean filter) {
+        ClassEntry entry = classes.get(cd);
+        if (entry == null) {
+            return cd.methods(filter);
+        }
+        return (filter ? entry.methods : entry.allMethods).clone();
+    }
+
+    /**
+     * @see ClassDoc#constructors()
+     */
+    public ConstructorDoc[] constructors(ClassDoc cd) {
+        ClassEntry entry = classes.get(cd);
+        if (entry == null) {
+            return cd.constructors();
+        }
+        return entry.constructors.clone();
+    }
+
+    /**
+     * @see ClassDoc#innerClasses(boolean)
+     */
+    public ClassDoc[] innerClasses(ClassDoc cd, boolean filter) {
+        ClassEntry entry = classes.get(cd);
+        if (entry == null) {
+            return cd.innerClasses(filter);
+        }
+        return (filter ? entry.innerClasses : entry.allInnerClasses).clone();
+    }
+
+    /**
+     * @see ClassDoc#enumConstants()
+     */
+    public FieldDoc[] enumConstants(ClassDoc cd) {
+        ClassEntry entry = classes.get(cd);
+        if (entry == null) {
+            return cd.enumConstants();
+        }
+        return entry.enumConstants.clone();
+    }
+
+    /**
+     * @see AnnotationTypeDoc#elements()
+     */
+    public AnnotationTypeElementDoc[] elements(AnnotationTypeDoc doc) {
+        ClassEntry entry = classes.get(doc);
+        if (entry == null) {
+            return doc.elements();
+        }
+        return entry.elements.clone();
+    }
+}
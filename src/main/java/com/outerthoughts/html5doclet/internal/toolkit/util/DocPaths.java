@@ -75,6 +75,12 @@ public class DocPaths {
     /** The name of the default javascript file. */
     public static final DocPath JAVASCRIPT = DocPath.create("script.js");
 
+    /** The name of the manifest of the pages generated by an incremental run. */
+    public static final DocPath PAGE_MANIFEST = DocPath.create(".page-manifest");
+
+    /** The name of the manifest of the file hashes recorded by "-skipunchanged". */
+    public static final DocPath OUTPUT_MANIFEST = DocPath.create(".output-manifest");
+
     /** The name of the file for the overview frame. */
     public static final DocPath OVERVIEW_FRAME = DocPath.create("overview-frame.html");
 
@@ -125,6 +131,9 @@ public class DocPaths {
     /** The name of the sub-package from which resources are read. */
     public static final DocPath RESOURCES = DocPath.create("resources");
 
+    /** The name of the file for the search index. */
+    public static final DocPath SEARCH_INDEX = DocPath.create("search-index.js");
+
     /** The name of the file for the serialized form info. */
     public static final DocPath SERIALIZED_FORM = DocPath.create("serialized-form.html");
 
@@ -0,0 +1,301 @@
+/*
+ * Copyright (C) 2021, Thalia Nero
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  This particular file is
+ * designated as subject to the "Classpath" exception as provided in
+ * the LICENSE file that accompanies this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.outerthoughts.html5doclet.internal.toolkit.util;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import com.outerthoughts.html5doclet.internal.toolkit.Configuration;
+import com.sun.javadoc.*;
+
+/**
+ * Walks the parts of the javadoc model that the page writers read, so
+ * that they are computed before the pages are generated concurrently.
+ *
+ * <p>The javadoc API is not thread-safe: comments are parsed, members are
+ * wrapped and referenced classes are looked up lazily, and the results are
+ * cached in unsynchronized maps.  Preloading a class on a single thread
+ * leaves only lookups of already computed values for the writers.
+ *
+ *  <p><b>This is NOT part of any supported API.
+ *  If you write code that depends on this, you do so at your own risk.
+ *  This code and its internal interfaces are subject to change or
+ *  deletion without notice.</b>
+ */
+public class DocPreloader {
+
+    private final Configuration configuration;
+
+    /**
+     * Classes whose members have been preloaded.
+     */
+    private final Set<ClassDoc> preloaded = new HashSet<ClassDoc>();
+
+    /**
+     * Classes that are only referenced from documented signatures.
+     */
+    private final Set<ClassDoc> referenced = new HashSet<ClassDoc>();
+
+    public DocPreloader(Configuration configuration) {
+        this.configuration = configuration;
+        // the taglet arrays are built on first use
+        configuration.tagletManager.getInlineCustomTaglets();
+    }
+
+    /**
+     * Preload everything the output stages read: the overview, the
+     * packages and every documented class.
+     *
+     * @param root the root of the documentation.
+     */
+    public void preload(RootDoc root) {
+        preloadDoc(root);
+        root.specifiedPackages();
+        root.specifiedClasses();
+        for (PackageDoc pkg : configuration.packages) {
+            preload(pkg);
+        }
+        for (ClassDoc cd : root.classes()) {
+            preload(cd);
+            if (cd.isSerializable()) {
+                preloadSerialization(cd);
+            }
+        }
+    }
+
+    private void preload(PackageDoc pkg) {
+        preloadDoc(pkg);
+        preloadAnnotations(pkg.annotations());
+        pkg.allClasses();
+        pkg.allClasses(false);
+        pkg.ordinaryClasses();
+        pkg.interfaces();
+        pkg.exceptions();
+        pkg.errors();
+        pkg.enums();
+        pkg.annotationTypes();
+    }
+
+    private void preloadSerialization(ClassDoc cd) {
+        cd.definesSerializableFields();
+        for (FieldDoc field : cd.serializableFields()) {
+            preloadMember(field);
+            for (SerialFieldTag tag : field.serialFieldTags()) {
+                reference(tag.fieldTypeDoc());
+                preloadTags(tag.inlineTags());
+            }
+        }
+        for (MethodDoc method : cd.serializationMethods()) {
+            preloadMember(method);
+        }
+    }
+
+    /**
+     * Preload the given class, its members and its supertypes.
+     *
+     * @param cd the class that will be documented.
+     */
+    public void preload(ClassDoc cd) {
+        if (cd == null || !preloaded.add(cd)) {
+            return;
+        }
+        reference(cd);
+        if (cd.isEnum()) {
+            Util.setEnumDocumentation(configuration, cd);
+        }
+        preloadTypes(cd.typeParameters(), true);
+        preloadType(cd.superclassType(), false);
+        preloadTypes(cd.interfaceTypes(), false);
+        preload(cd.superclass());
+        for (ClassDoc intf : cd.interfaces()) {
+            preload(intf);
+        }
+        reference(cd.containingClass());
+        for (ClassDoc inner : cd.innerClasses(false)) {
+            reference(inner);
+        }
+        for (FieldDoc field : cd.fields(false)) {
+            preloadMember(field);
+        }
+        for (FieldDoc field : cd.enumConstants()) {
+            preloadMember(field);
+        }
+        for (ConstructorDoc ctor : cd.constructors(false)) {
+            preloadMember(ctor);
+        }
+        for (MethodDoc method : cd.methods(false)) {
+            preloadMember(method);
+        }
+        if (cd.isAnnotationType()) {
+            for (AnnotationTypeElementDoc element : ((AnnotationTypeDoc) cd).elements()) {
+                preloadMember(element);
+            }
+        }
+    }
+
+    /**
+     * Preload the parts of a class that links to it read.
+     */
+    private void reference(ClassDoc cd) {
+        if (cd == null || !referenced.add(cd)) {
+            return;
+        }
+        cd.qualifiedName();
+        cd.isIncluded();
+        cd.modifierSpecifier();
+        preloadDoc(cd.containingPackage());
+        preloadDoc(cd);
+        preloadAnnotations(cd.annotations());
+        preloadTypes(cd.typeParameters(), false);
+    }
+
+    private void preloadMember(ProgramElementDoc member) {
+        reference(member.containingClass());
+        member.modifierSpecifier();
+        preloadDoc(member);
+        preloadAnnotations(member.annotations());
+        if (member instanceof ExecutableMemberDoc) {
+            ExecutableMemberDoc emd = (ExecutableMemberDoc) member;
+            emd.signature();
+            emd.flatSignature();
+            preloadTypes(emd.typeParameters(), true);
+            for (Parameter param : emd.parameters()) {
+                preloadType(param.type(), false);
+                preloadAnnotations(param.annotations());
+            }
+            preloadTypes(emd.thrownExceptionTypes(), false);
+            preloadType(emd.receiverType(), false);
+        }
+        if (member instanceof MethodDoc) {
+            MethodDoc method = (MethodDoc) member;
+            preloadType(method.returnType(), false);
+            preloadType(method.overriddenType(), false);
+            MethodDoc overridden = method.overriddenMethod();
+            if (overridden != null) {
+                preload(overridden.containingClass());
+            }
+        }
+        if (member instanceof FieldDoc) {
+            FieldDoc field = (FieldDoc) member;
+            preloadType(field.type(), false);
+            field.constantValueExpression();
+        }
+        if (member instanceof AnnotationTypeElementDoc) {
+            AnnotationValue value = ((AnnotationTypeElementDoc) member).defaultValue();
+            if (value != null) {
+                preloadAnnotationValue(value.value());
+            }
+        }
+    }
+
+    private void preloadDoc(Doc doc) {
+        if (doc == null) {
+            return;
+        }
+        doc.commentText();
+        preloadTags(doc.inlineTags());
+        preloadTags(doc.firstSentenceTags());
+        preloadTags(doc.tags());
+    }
+
+    private void preloadTags(Tag[] tags) {
+        for (Tag tag : tags) {
+            if (tag instanceof SeeTag) {
+                SeeTag see = (SeeTag) tag;
+                reference(see.referencedClass());
+                MemberDoc member = see.referencedMember();
+                if (member != null) {
+                    member.containingClass();
+                }
+                see.referencedPackage();
+            } else if (tag instanceof ThrowsTag) {
+                preloadType(((ThrowsTag) tag).exceptionType(), false);
+            }
+            if (!tag.kind().equals("Text")) {
+                preloadTags(tag.inlineTags());
+                preloadTags(tag.firstSentenceTags());
+            }
+        }
+    }
+
+    private void preloadAnnotations(AnnotationDesc[] annotations) {
+        for (AnnotationDesc annotation : annotations) {
+            reference(annotation.annotationType());
+            for (AnnotationDesc.ElementValuePair pair : annotation.elementValues()) {
+                pair.element();
+                preloadAnnotationValue(pair.value().value());
+            }
+        }
+    }
+
+    private void preloadAnnotationValue(Object value) {
+        if (value instanceof Type) {
+            preloadType((Type) value, false);
+        } else if (value instanceof FieldDoc) {
+            reference(((FieldDoc) value).containingClass());
+        } else if (value instanceof AnnotationDesc) {
+            preloadAnnotations(new AnnotationDesc[] { (AnnotationDesc) value });
+        } else if (value instanceof AnnotationValue[]) {
+            for (AnnotationValue v : (AnnotationValue[]) value) {
+                preloadAnnotationValue(v.value());
+            }
+        }
+    }
+
+    private void preloadTypes(Type[] types, boolean bounds) {
+        if (types == null) {
+            return;
+        }
+        for (Type type : types) {
+            preloadType(type, bounds);
+        }
+    }
+
+    /**
+     * Preload a type used in a signature.  Bounds of type variables are only
+     * followed where the variables are declared, since they may be recursive.
+     */
+    private void preloadType(Type type, boolean bounds) {
+        if (type == null || type.isPrimitive()) {
+            return;
+        }
+        type.qualifiedTypeName();
+        reference(type.asClassDoc());
+        AnnotatedType annotated = type.asAnnotatedType();
+        if (annotated != null) {
+            preloadAnnotations(annotated.annotations());
+            preloadType(annotated.underlyingType(), bounds);
+        }
+        ParameterizedType parameterized = type.asParameterizedType();
+        if (parameterized != null) {
+            preloadTypes(parameterized.typeArguments(), false);
+            preloadType(parameterized.containingType(), false);
+        }
+        WildcardType wildcard = type.asWildcardType();
+        if (wildcard != null) {
+            preloadTypes(wildcard.extendsBounds(), false);
+            preloadTypes(wildcard.superBounds(), false);
+        }
+        TypeVariable variable = type.asTypeVariable();
+        if (variable != null && bounds) {
+            preloadTypes(variable.bounds(), false);
+        }
+    }
+}
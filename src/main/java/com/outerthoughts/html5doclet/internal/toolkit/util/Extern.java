@@ -27,8 +27,9 @@ package com.outerthoughts.html5doclet.internal.toolkit.util;
 
 import java.io.*;
 import java.net.*;
-import java.util.HashMap;
-import java.util.Map;
+import java.security.MessageDigest;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.tools.DocumentationTool;
 
@@ -42,6 +43,11 @@ import com.outerthoughts.html5doclet.internal.toolkit.*;
  * documented) file in the current or the destination directory, while
  * generating the documentation.
  *
+ * <p>The packages of all package lists share one map, from package name to
+ * the list it was first found in, which pages look up concurrently.  The
+ * package lists of URLs are read through the {@link PackageListCache} if
+ * "-linkcache" is used.
+ *
  *  <p><b>This is NOT part of any supported API.
  *  If you write code that depends on this, you do so at your own risk.
  *  This code and its internal interfaces are subject to change or
@@ -54,9 +60,15 @@ public class Extern {
 
     /**
      * Map package names onto Extern Item objects.
-     * Lazily initialized.
      */
-    private Map<String,Item> packageToItemMap;
+    private final ConcurrentMap<String,Item> packageToItemMap =
+            new ConcurrentHashMap<String,Item>();
+
+    /**
+     * The package lists read so far, each as its path followed by its
+     * packages.  Only written while the options are processed.
+     */
+    private final MessageDigest packageListsDigest = PageManifest.newDigest();
 
     /**
      * The global configuration information for this run.
@@ -71,16 +83,11 @@ public class Extern {
     /**
      * Stores the info for one external doc set
      */
-    private class Item {
-
-        /**
-         * Package name, found in the "package-list" file in the {@link path}.
-         */
-        final String packageName;
+    private static class Item {
 
         /**
-         * The URL or the directory path at which the package documentation will be
-         * avaliable.
+         * The URL or the directory path at which the documentation of the
+         * packages will be avaliable.
          */
         final String path;
 
@@ -90,32 +97,29 @@ public class Extern {
         final boolean relative;
 
         /**
-         * Constructor to build a Extern Item object and map it with the package name.
-         * If the same package name is found in the map, then the first mapped
-         * Item object or offline location will be retained.
+         * Constructor to build a Extern Item object.
          *
-         * @param packageName Package name found in the "package-list" file.
          * @param path        URL or Directory path from where the "package-list"
          * file is picked.
          * @param relative    True if path is URL, false if directory path.
          */
-        Item(String packageName, String path, boolean relative) {
-            this.packageName = packageName;
+        Item(String path, boolean relative) {
             this.path = path;
             this.relative = relative;
-            if (packageToItemMap == null) {
-                packageToItemMap = new HashMap<String,Item>();
-            }
-            if (!packageToItemMap.containsKey(packageName)) { // save the previous
-                packageToItemMap.put(packageName, this);        // mapped location
-            }
         }
 
         /**
-         * String representation of "this" with packagename and the path.
+         * Return the URL or the directory path of the given package.
+         */
+        String getPath(String packageName) {
+            return path + packageName.replace('.', '/') + '/';
+        }
+
+        /**
+         * String representation of "this" with the path.
          */
         public String toString() {
-            return packageName + (relative? " -> " : " => ") + path;
+            return (relative? "-> " : "=> ") + path;
         }
     }
 
@@ -129,9 +133,6 @@ public class Extern {
      * @param doc A ProgramElementDoc.
      */
     public boolean isExternal(ProgramElementDoc doc) {
-        if (packageToItemMap == null) {
-            return false;
-        }
         return packageToItemMap.get(doc.containingPackage().name()) != null;
     }
 
@@ -154,9 +155,10 @@ public class Extern {
         if (fnd == null)
             return null;
 
+        String path = fnd.getPath(pkgName);
         DocPath p = fnd.relative ?
-                relativepath.resolve(fnd.path).resolve(filename) :
-                DocPath.create(fnd.path).resolve(filename);
+                relativepath.resolve(path).resolve(filename) :
+                DocPath.create(path).resolve(filename);
 
         return new DocLink(p, "is-external=true", memberName);
     }
@@ -210,9 +212,6 @@ public class Extern {
      * @param pkgName Package name.
      */
     private Item findPackageItem(String pkgName) {
-        if (packageToItemMap == null) {
-            return null;
-        }
         return packageToItemMap.get(pkgName);
     }
 
@@ -233,7 +232,11 @@ public class Extern {
             throws Fault {
         try {
             URL link = pkglisturlpath.toURI().resolve(DocPaths.PACKAGE_LIST.getPath()).toURL();
-            readPackageList(link.openStream(), urlpath, false);
+            InputStream input = (configuration.linkcache.length() == 0) ?
+                link.openStream() :
+                new PackageListCache(configuration,
+                        new File(configuration.linkcache)).open(link);
+            readPackageList(input, urlpath, false);
         } catch (URISyntaxException exc) {
             throw new Fault(configuration.getText("doclet.MalformedURL", pkglisturlpath.toString()), exc);
         } catch (MalformedURLException exc) {
@@ -270,8 +273,9 @@ public class Extern {
     }
 
     /**
-     * Read the file "package-list" and for each package name found, create
-     * Extern object and associate it with the package name in the map.
+     * Read the file "package-list" and associate each package name found
+     * with an Extern Item object for the list, unless the package was
+     * found in an earlier list.
      *
      * @param input    InputStream from the "package-list" file.
      * @param path     URL or the directory path to the packages.
@@ -282,6 +286,9 @@ public class Extern {
                          throws IOException {
         BufferedReader in = new BufferedReader(new InputStreamReader(input));
         StringBuilder strbuf = new StringBuilder();
+        Item item = new Item(path, relative);
+        PageManifest.update(packageListsDigest, path);
+        PageManifest.update(packageListsDigest, String.valueOf(relative));
         try {
             int c;
             while ((c = in.read()) >= 0) {
@@ -289,9 +296,8 @@ public class Extern {
                 if (ch == '\n' || ch == '\r') {
                     if (strbuf.length() > 0) {
                         String packname = strbuf.toString();
-                        String packpath = path +
-                                      packname.replace('.', '/') + '/';
-                        new Item(packname, packpath, relative);
+                        packageToItemMap.putIfAbsent(packname, item);
+                        PageManifest.update(packageListsDigest, packname);
                         strbuf.setLength(0);
                     }
                 } else {
@@ -303,6 +309,18 @@ public class Extern {
         }
     }
 
+    /**
+     * Return the digest of the paths and the packages of all package lists
+     * read, in the order they were read.
+     */
+    public String getPackageListsDigest() {
+        try {
+            return PageManifest.toHex(((MessageDigest) packageListsDigest.clone()).digest());
+        } catch (CloneNotSupportedException e) {
+            throw new DocletAbortException(e);
+        }
+    }
+
     public boolean isUrl (String urlCandidate) {
         try {
             new URL(urlCandidate);
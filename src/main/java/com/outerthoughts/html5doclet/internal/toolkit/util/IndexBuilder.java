@@ -26,6 +26,7 @@
 package com.outerthoughts.html5doclet.internal.toolkit.util;
 
 import java.util.*;
+import java.util.concurrent.*;
 
 import com.sun.javadoc.*;
 import com.outerthoughts.html5doclet.internal.toolkit.*;
@@ -36,6 +37,13 @@ import com.outerthoughts.html5doclet.internal.toolkit.*;
  * Unicode characters which start a member name. Member name is
  * classkind or field or method or constructor name.
  *
+ * <p>The classes are split into chunks whose entries are collected
+ * concurrently if the run uses several threads, and merged in document
+ * order.  The entries are then bucketed by their first character with a
+ * counting sort, and each bucket is sorted on its own, using collation keys
+ * computed once per entry.  An index of the classes alone can be taken from
+ * a full index with {@link #getClassesIndex()}, without collecting again.
+ *
  *  <p><b>This is NOT part of any supported API.
  *  If you write code that depends on this, you do so at your own risk.
  *  This code and its internal interfaces are subject to change or
@@ -47,12 +55,19 @@ import com.outerthoughts.html5doclet.internal.toolkit.*;
  */
 public class IndexBuilder {
 
+    /**
+     * The number of classes whose entries are collected by one task.
+     */
+    private static final int CHUNK_SIZE = 32;
+
     /**
      * Mapping of each Unicode Character with the member list containing
      * members with names starting with it.
      */
     private Map<Character,List<Doc>> indexmap = new HashMap<Character,List<Doc>>();
 
+    private final Configuration configuration;
+
     /**
      * Don't generate deprecated information if true.
      */
@@ -72,26 +87,57 @@ public class IndexBuilder {
     protected final Object[] elements;
 
     /**
-     * A comparator used to sort classes and members.
-     * Note:  Maybe this compare code belongs in the tool?
+     * The index of the classes alone, once taken from this index.
      */
-    private class DocComparator implements Comparator<Doc> {
-        public int compare(Doc d1, Doc d2) {
-            String doc1 = d1.name();
-            String doc2 = d2.name();
-            int compareResult;
-            if ((compareResult = doc1.compareToIgnoreCase(doc2)) != 0) {
-                return compareResult;
-            } else if (d1 instanceof ProgramElementDoc && d2 instanceof ProgramElementDoc) {
-                 doc1 = (((ProgramElementDoc) d1).qualifiedName());
-                 doc2 = (((ProgramElementDoc) d2).qualifiedName());
-                 return doc1.compareToIgnoreCase(doc2);
-            } else {
-                return 0;
-            }
+    private IndexBuilder classesIndex;
+
+    /**
+     * An entry of the index, with the keys it is sorted by.
+     */
+    private static class Entry {
+        final Doc doc;
+        final char letter;
+        final String nameKey;
+        final String qualifiedNameKey;
+        int order;
+
+        Entry(Doc doc) {
+            this.doc = doc;
+            String name = doc.name();
+            this.letter = (name.length() == 0) ?
+                '*' :
+                Character.toUpperCase(name.charAt(0));
+            this.nameKey = collationKey(name);
+            this.qualifiedNameKey = (doc instanceof ProgramElementDoc) ?
+                collationKey(((ProgramElementDoc) doc).qualifiedName()) :
+                null;
         }
     }
 
+    /**
+     * The entries collected for a chunk of classes.
+     */
+    private static class EntryBuffer {
+        final List<Entry> classes = new ArrayList<Entry>();
+        final List<Entry> members = new ArrayList<Entry>();
+    }
+
+    /**
+     * Sorts entries by name, and then by qualified name, ignoring case,
+     * like {@link String#compareToIgnoreCase} would.  Entries that are
+     * still equal stay in document order.
+     */
+    private static final Comparator<Entry> ENTRY_COMPARATOR = new Comparator<Entry>() {
+        public int compare(Entry e1, Entry e2) {
+            int compareResult = e1.nameKey.compareTo(e2.nameKey);
+            if (compareResult == 0 && e1.qualifiedNameKey != null
+                    && e2.qualifiedNameKey != null) {
+                compareResult = e1.qualifiedNameKey.compareTo(e2.qualifiedNameKey);
+            }
+            return (compareResult != 0) ? compareResult : e1.order - e2.order;
+        }
+    };
+
     /**
      * Constructor. Build the index map.
      *
@@ -118,6 +164,7 @@ public class IndexBuilder {
         } else {
             configuration.message.notice("doclet.Building_Index");
         }
+        this.configuration = configuration;
         this.noDeprecated = noDeprecated;
         this.classesOnly = classesOnly;
         this.javafx = configuration.javafx;
@@ -128,13 +175,28 @@ public class IndexBuilder {
     }
 
     /**
-     * Sort the index map. Traverse the index map for all it's elements and
-     * sort each element which is a list.
+     * Construct the index of the classes in the given index.
      */
-    protected void sortIndexMap() {
-        for (Iterator<List<Doc>> it = indexmap.values().iterator(); it.hasNext(); ) {
-            Collections.sort(it.next(), new DocComparator());
+    private IndexBuilder(IndexBuilder index) {
+        index.configuration.message.notice("doclet.Building_Index_For_All_Classes");
+        this.configuration = index.configuration;
+        this.noDeprecated = index.noDeprecated;
+        this.classesOnly = true;
+        this.javafx = index.javafx;
+        List<Object> keys = new ArrayList<Object>();
+        for (Object key : index.elements) {
+            List<Doc> list = new ArrayList<Doc>();
+            for (Doc doc : index.indexmap.get(key)) {
+                if (doc instanceof ClassDoc) {
+                    list.add(doc);
+                }
+            }
+            if (!list.isEmpty()) {
+                indexmap.put((Character) key, list);
+                keys.add(key);
+            }
         }
+        elements = keys.toArray();
     }
 
     /**
@@ -147,6 +209,7 @@ public class IndexBuilder {
     protected void buildIndexMap(RootDoc root)  {
         PackageDoc[] packages = root.specifiedPackages();
         ClassDoc[] classes = root.classes();
+        List<Entry> entries = new ArrayList<Entry>();
         if (!classesOnly) {
             if (packages.length == 0) {
                 Set<PackageDoc> set = new HashSet<PackageDoc>();
@@ -157,58 +220,204 @@ public class IndexBuilder {
                         set.add(pd);
                     }
                 }
-                adjustIndexMap(set.toArray(packages));
-            } else {
-                adjustIndexMap(packages);
+                packages = set.toArray(packages);
+            }
+            for (PackageDoc pd : packages) {
+                if (shouldAddToIndexMap(pd)) {
+                    entries.add(new Entry(pd));
+                }
             }
         }
-        adjustIndexMap(classes);
-        if (!classesOnly) {
-            for (int i = 0; i < classes.length; i++) {
-                if (shouldAddToIndexMap(classes[i])) {
-                    putMembersInIndexMap(classes[i]);
+        int chunks = (classes.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        ExecutorService executor = (configuration.threads <= 1 || chunks <= 1) ?
+            null : newExecutor(Math.min(configuration.threads, chunks));
+        try {
+            List<EntryBuffer> buffers = collect(executor, classes, chunks);
+            for (EntryBuffer buffer : buffers) {
+                entries.addAll(buffer.classes);
+            }
+            for (EntryBuffer buffer : buffers) {
+                entries.addAll(buffer.members);
+            }
+            sortIndexMap(executor, entries);
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Collect the entries of the given classes and of their members, in
+     * chunks of {@link #CHUNK_SIZE} classes.  The chunks are collected
+     * concurrently if an executor is given, since the javadoc model is then
+     * preloaded.
+     *
+     * @return the entries of each chunk.
+     */
+    private List<EntryBuffer> collect(ExecutorService executor,
+            final ClassDoc[] classes, int chunks) {
+        List<Callable<EntryBuffer>> tasks = new ArrayList<Callable<EntryBuffer>>(chunks);
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            final int from = chunk * CHUNK_SIZE;
+            final int to = Math.min(classes.length, from + CHUNK_SIZE);
+            tasks.add(new Callable<EntryBuffer>() {
+                public EntryBuffer call() {
+                    EntryBuffer buffer = new EntryBuffer();
+                    for (int i = from; i < to; i++) {
+                        if (shouldAddToIndexMap(classes[i])) {
+                            buffer.classes.add(new Entry(classes[i]));
+                            if (!classesOnly) {
+                                putMembersInIndexMap(buffer.members, classes[i]);
+                            }
+                        }
+                    }
+                    return buffer;
                 }
+            });
+        }
+        return invokeAll(executor, tasks);
+    }
+
+    /**
+     * Sort the index map.  The entries, in document order, are bucketed by
+     * their first character, and each bucket is sorted on its own.
+     *
+     * @param executor the executor to sort the buckets with, or null.
+     * @param entries  the entries in document order.
+     */
+    private void sortIndexMap(ExecutorService executor, List<Entry> entries) {
+        int[] starts = new int[Character.MAX_VALUE + 2];
+        for (int i = 0; i < entries.size(); i++) {
+            Entry entry = entries.get(i);
+            entry.order = i;
+            starts[entry.letter + 1]++;
+        }
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            starts[c + 1] += starts[c];
+        }
+        final Entry[] sorted = new Entry[entries.size()];
+        int[] next = Arrays.copyOf(starts, Character.MAX_VALUE + 1);
+        for (Entry entry : entries) {
+            sorted[next[entry.letter]++] = entry;
+        }
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            final int from = starts[c];
+            final int to = starts[c + 1];
+            if (from == to) {
+                continue;
             }
+            final Doc[] docs = new Doc[to - from];
+            indexmap.put((char) c, Arrays.asList(docs));
+            tasks.add(new Callable<Void>() {
+                public Void call() {
+                    Arrays.sort(sorted, from, to, ENTRY_COMPARATOR);
+                    for (int i = from; i < to; i++) {
+                        docs[i - from] = sorted[i].doc;
+                    }
+                    return null;
+                }
+            });
         }
-        sortIndexMap();
+        invokeAll(executor, tasks);
     }
 
     /**
      * Put all the members(fields, methods and constructors) in the classdoc
-     * to the indexmap.
+     * to the given entries.
      *
-     * @param classdoc ClassDoc whose members will be added to the indexmap.
+     * @param entries  the list to add the entries to.
+     * @param classdoc ClassDoc whose members will be added to the entries.
      */
-    protected void putMembersInIndexMap(ClassDoc classdoc) {
-        adjustIndexMap(classdoc.fields());
-        adjustIndexMap(classdoc.methods());
-        adjustIndexMap(classdoc.constructors());
+    private void putMembersInIndexMap(List<Entry> entries, ClassDoc classdoc) {
+        DocIndex docIndex = configuration.docIndex;
+        addEntries(entries, docIndex.fields(classdoc, true));
+        addEntries(entries, docIndex.methods(classdoc, true));
+        addEntries(entries, docIndex.constructors(classdoc));
     }
 
-
     /**
-     * Adjust list of members according to their names. Check the first
-     * character in a member name, and then add the member to a list of members
-     * for that particular unicode character.
+     * Add the entries of the given elements that belong in the index.
      *
+     * @param entries  the list to add the entries to.
      * @param elements Array of members.
      */
-    protected void adjustIndexMap(Doc[] elements) {
+    private void addEntries(List<Entry> entries, Doc[] elements) {
         for (int i = 0; i < elements.length; i++) {
             if (shouldAddToIndexMap(elements[i])) {
-                String name = elements[i].name();
-                char ch = (name.length()==0)?
-                    '*' :
-                    Character.toUpperCase(name.charAt(0));
-                Character unicode = new Character(ch);
-                List<Doc> list = indexmap.get(unicode);
-                if (list == null) {
-                    list = new ArrayList<Doc>();
-                    indexmap.put(unicode, list);
+                entries.add(new Entry(elements[i]));
+            }
+        }
+    }
+
+    /**
+     * Return the key of the given name, such that comparing the keys of two
+     * names gives the same result as {@link String#compareToIgnoreCase}.
+     */
+    public static String collationKey(String name) {
+        char[] chars = null;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            char k;
+            if (c < 0x80) {
+                k = (c >= 'A' && c <= 'Z') ? (char) (c + ('a' - 'A')) : c;
+            } else {
+                k = Character.toLowerCase(Character.toUpperCase(c));
+            }
+            if (k != c) {
+                if (chars == null) {
+                    chars = name.toCharArray();
                 }
-                list.add(elements[i]);
+                chars[i] = k;
             }
         }
+        return (chars == null) ? name : new String(chars);
+    }
+
+    private static ExecutorService newExecutor(int threads) {
+        return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private int count = 0;
+            public synchronized Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "doclet-index-" + (++count));
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    /**
+     * Run the given tasks on the executor, or on the calling thread if it
+     * is null, and return their results in order.
+     */
+    private static <T> List<T> invokeAll(ExecutorService executor,
+            List<Callable<T>> tasks) {
+        List<T> results = new ArrayList<T>(tasks.size());
+        try {
+            if (executor == null) {
+                for (Callable<T> task : tasks) {
+                    results.add(task.call());
+                }
+                return results;
+            }
+            for (Future<T> future : executor.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof DocletAbortException) {
+                throw (DocletAbortException) cause;
+            }
+            throw new DocletAbortException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DocletAbortException(e);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new DocletAbortException(e);
+        }
     }
 
     /**
@@ -259,4 +468,18 @@ public class IndexBuilder {
     public Object[] elements() {
         return elements;
     }
+
+    /**
+     * Return the index of the classes alone, as built with
+     * {@code classesOnly} set, taken from the entries of this index.
+     */
+    public synchronized IndexBuilder getClassesIndex() {
+        if (classesOnly) {
+            return this;
+        }
+        if (classesIndex == null) {
+            classesIndex = new IndexBuilder(this);
+        }
+        return classesIndex;
+    }
 }
@@ -26,6 +26,9 @@ package com.outerthoughts.html5doclet.internal.toolkit.util;
 
 import java.text.MessageFormat;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
 
 import com.sun.javadoc.*;
 import com.outerthoughts.html5doclet.internal.toolkit.Configuration;
@@ -34,6 +37,11 @@ import com.outerthoughts.html5doclet.internal.toolkit.Configuration;
 /**
  * Retrieve and format messages stored in a resource.
  *
+ * <p>Each message is compiled once, on first use, and formatted with its
+ * compiled format afterwards.  The text of a message without arguments is
+ * kept as well.  The number of requests for each message is counted, and
+ * reported with the "-xtimeline" option.
+ *
  *  <p><b>This is NOT part of any supported API.
  *  If you write code that depends on this, you do so at your own risk.
  *  This code and its internal interfaces are subject to change or
@@ -57,7 +65,45 @@ public class MessageRetriever {
     /**
      * The lazily fetched resource..
      */
-    private ResourceBundle messageRB;
+    private volatile ResourceBundle messageRB;
+
+    /**
+     * A message of the resource, compiled on first use.
+     */
+    private static class Message {
+        /**
+         * The compiled format.  Formats are not thread-safe, so it is
+         * locked while formatting.
+         */
+        final MessageFormat format;
+
+        /**
+         * The message formatted without arguments.
+         */
+        final String text;
+
+        final LongAdder requests = new LongAdder();
+
+        Message(String pattern) {
+            format = new MessageFormat(pattern);
+            text = format.format(new Object[0]);
+        }
+
+        String format(Object[] args) {
+            if (args == null || args.length == 0) {
+                return text;
+            }
+            synchronized (format) {
+                return format.format(args);
+            }
+        }
+    }
+
+    /**
+     * The messages used so far, by key.
+     */
+    private final ConcurrentMap<String,Message> messages =
+            new ConcurrentHashMap<String,Message>();
 
     /**
      * Initialize the ResourceBundle with the given resource.
@@ -91,6 +137,19 @@ public class MessageRetriever {
      * exist in the properties file.
      */
     public String getText(String key, Object... args) throws MissingResourceException {
+        Message message = messages.get(key);
+        if (message == null) {
+            message = new Message(getResource().getString(key));
+            Message prev = messages.putIfAbsent(key, message);
+            if (prev != null) {
+                message = prev;
+            }
+        }
+        message.requests.increment();
+        return message.format(args);
+    }
+
+    private ResourceBundle getResource() {
         if (messageRB == null) {
             try {
                 messageRB = ResourceBundle.getBundle(resourcelocation);
@@ -99,8 +158,18 @@ public class MessageRetriever {
                                     ") for javadoc doclets is missing.");
             }
         }
-        String message = messageRB.getString(key);
-        return MessageFormat.format(message, args);
+        return messageRB;
+    }
+
+    /**
+     * Return the number of requests for each message used so far, by key.
+     */
+    public Map<String,Long> getRequestCounts() {
+        Map<String,Long> counts = new TreeMap<String,Long>();
+        for (Map.Entry<String,Message> entry : messages.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().requests.sum());
+        }
+        return counts;
     }
 
     /**
@@ -110,7 +179,9 @@ public class MessageRetriever {
      * @param msg message to print
      */
     private void printError(SourcePosition pos, String msg) {
-        configuration.root.printError(pos, msg);
+        synchronized (configuration.root) {
+            configuration.root.printError(pos, msg);
+        }
     }
 
     /**
@@ -119,7 +190,9 @@ public class MessageRetriever {
      * @param msg message to print
      */
     private void printError(String msg) {
-        configuration.root.printError(msg);
+        synchronized (configuration.root) {
+            configuration.root.printError(msg);
+        }
     }
 
     /**
@@ -129,7 +202,9 @@ public class MessageRetriever {
      * @param msg message to print
      */
     private void printWarning(SourcePosition pos, String msg) {
-        configuration.root.printWarning(pos, msg);
+        synchronized (configuration.root) {
+            configuration.root.printWarning(pos, msg);
+        }
     }
 
     /**
@@ -138,7 +213,9 @@ public class MessageRetriever {
      * @param msg message to print
      */
     private void printWarning(String msg) {
-        configuration.root.printWarning(msg);
+        synchronized (configuration.root) {
+            configuration.root.printWarning(msg);
+        }
     }
 
     /**
@@ -148,7 +225,9 @@ public class MessageRetriever {
      * @param msg message to print
      */
     private void printNotice(SourcePosition pos, String msg) {
-        configuration.root.printNotice(pos, msg);
+        synchronized (configuration.root) {
+            configuration.root.printNotice(pos, msg);
+        }
     }
 
     /**
@@ -157,7 +236,9 @@ public class MessageRetriever {
      * @param msg message to print
      */
     private void printNotice(String msg) {
-        configuration.root.printNotice(msg);
+        synchronized (configuration.root) {
+            configuration.root.printNotice(msg);
+        }
     }
 
     /**
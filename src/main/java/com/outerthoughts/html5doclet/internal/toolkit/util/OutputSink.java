@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2021, Thalia Nero
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  This particular file is
+ * designated as subject to the "Classpath" exception as provided in
+ * the LICENSE file that accompanies this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.outerthoughts.html5doclet.internal.toolkit.util;
+
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A destination through which the generated files are written, instead
+ * of straight into the destination directory.  Once a sink is set in {@link
+ * com.outerthoughts.html5doclet.internal.toolkit.Configuration#outputSink},
+ * every {@link DocFile} created for output writes to it.  A sink must
+ * accept files from several threads at once.
+ *
+ *  <p><b>This is NOT part of any supported API.
+ *  If you write code that depends on this, you do so at your own risk.
+ *  This code and its internal interfaces are subject to change or
+ *  deletion without notice.</b>
+ */
+public interface OutputSink extends Closeable {
+
+    /**
+     * Open a stream for the file at the given path.  The file is complete
+     * once the stream is closed.
+     *
+     * @param path the path of the file, relative to the output.
+     */
+    OutputStream openOutputStream(DocPath path) throws IOException;
+
+    /**
+     * Open a stream that reads the file at the given path, if the sink
+     * can read its files back.
+     *
+     * @param path the path of the file, relative to the output.
+     * @throws FileNotFoundException if the file cannot be read.
+     */
+    InputStream openInputStream(DocPath path) throws IOException;
+
+    /**
+     * Return true if the file at the given path exists in the output.
+     *
+     * @param path the path of the file, relative to the output.
+     */
+    boolean contains(DocPath path);
+
+    /**
+     * Finish the output, once all files are written.  Closing a sink again
+     * has no effect.
+     */
+    void close() throws IOException;
+}
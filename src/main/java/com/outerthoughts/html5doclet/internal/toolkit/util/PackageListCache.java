@@ -0,0 +1,241 @@
+/*
+ * Copyright (C) 2021, Thalia Nero
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  This particular file is
+ * designated as subject to the "Classpath" exception as provided in
+ * the LICENSE file that accompanies this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.outerthoughts.html5doclet.internal.toolkit.util;
+
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import com.outerthoughts.html5doclet.internal.toolkit.Configuration;
+
+/**
+ * The package lists of "-link" URLs, kept in the directory given with the
+ * "-linkcache" option, so that a run does not fetch them again unless they
+ * changed.
+ *
+ * <p>Each package list is kept in a file named after the SHA-1 of its URL.
+ * The file starts with the URL and the validators sent by the server, as
+ * "name: value" lines ended by an empty line, followed by the package
+ * list.  A cached list is revalidated with "If-None-Match" and
+ * "If-Modified-Since", and used as long as the server answers "304 Not
+ * Modified", or if the server cannot be reached.  Files are replaced by
+ * renaming, so runs sharing the directory never see half a file.  Only
+ * HTTP and HTTPS URLs are cached; other URLs are opened directly.
+ *
+ *  <p><b>This is NOT part of any supported API.
+ *  If you write code that depends on this, you do so at your own risk.
+ *  This code and its internal interfaces are subject to change or
+ *  deletion without notice.</b>
+ */
+public class PackageListCache {
+
+    private static final String URL_HEADER = "URL";
+    private static final String ETAG_HEADER = "ETag";
+    private static final String LAST_MODIFIED_HEADER = "Last-Modified";
+
+    private final Configuration configuration;
+
+    private final File dir;
+
+    /**
+     * Construct a cache in the given directory, which is created when the
+     * first package list is stored.
+     *
+     * @param configuration the configuration of the run.
+     * @param dir the cache directory.
+     */
+    public PackageListCache(Configuration configuration, File dir) {
+        this.configuration = configuration;
+        this.dir = dir;
+    }
+
+    /**
+     * A package list read from the cache.
+     */
+    private static class Entry {
+        String etag;
+        String lastModified;
+        byte[] content;
+    }
+
+    /**
+     * Open the package list at the given URL, from the cache if it did not
+     * change since it was stored.
+     *
+     * @param url the URL of the package list.
+     * @return a stream that reads the package list.
+     */
+    public InputStream open(URL url) throws IOException {
+        String protocol = url.getProtocol();
+        if (!(protocol.equals("http") || protocol.equals("https"))) {
+            return url.openStream();
+        }
+        File file = new File(dir, PageManifest.toHex(PageManifest.newDigest().digest(
+                url.toString().getBytes(StandardCharsets.UTF_8))));
+        Entry cached = read(file, url);
+        try {
+            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+            if (cached != null) {
+                if (cached.etag != null) {
+                    conn.setRequestProperty("If-None-Match", cached.etag);
+                }
+                if (cached.lastModified != null) {
+                    conn.setRequestProperty("If-Modified-Since", cached.lastModified);
+                }
+            }
+            if (conn.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED
+                    && cached != null) {
+                conn.disconnect();
+                return new ByteArrayInputStream(cached.content);
+            }
+            // Throws for error responses, as URL.openStream() would.
+            byte[] content = readAll(conn.getInputStream());
+            write(file, url, conn, content);
+            return new ByteArrayInputStream(content);
+        } catch (IOException exc) {
+            if (cached == null) {
+                throw exc;
+            }
+            configuration.message.warning("doclet.Link_cache_stale",
+                    url.toString(), exc.toString());
+            return new ByteArrayInputStream(cached.content);
+        }
+    }
+
+    /**
+     * Read the cached package list of the given URL, or return null if
+     * there is none.
+     */
+    private Entry read(File file, URL url) {
+        if (!file.isFile()) {
+            return null;
+        }
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(file.toPath());
+        } catch (IOException exc) {
+            return null;
+        }
+        Entry entry = new Entry();
+        String cachedUrl = null;
+        int pos = 0;
+        while (true) {
+            int end = indexOf(bytes, (byte) '\n', pos);
+            if (end < 0) {
+                return null;
+            }
+            String line = new String(bytes, pos, end - pos, StandardCharsets.UTF_8);
+            pos = end + 1;
+            if (line.isEmpty()) {
+                break;
+            }
+            int colon = line.indexOf(": ");
+            if (colon < 0) {
+                return null;
+            }
+            String name = line.substring(0, colon);
+            String value = line.substring(colon + 2);
+            if (name.equals(URL_HEADER)) {
+                cachedUrl = value;
+            } else if (name.equals(ETAG_HEADER)) {
+                entry.etag = value;
+            } else if (name.equals(LAST_MODIFIED_HEADER)) {
+                entry.lastModified = value;
+            }
+        }
+        // A different URL with the same hash, however unlikely, is a miss.
+        if (!url.toString().equals(cachedUrl)) {
+            return null;
+        }
+        entry.content = new byte[bytes.length - pos];
+        System.arraycopy(bytes, pos, entry.content, 0, entry.content.length);
+        return entry;
+    }
+
+    /**
+     * Store the package list of the given URL with the validators of the
+     * response.  A list that cannot be stored is only fetched again on the
+     * next run.
+     */
+    private void write(File file, URL url, URLConnection conn, byte[] content) {
+        StringBuilder header = new StringBuilder();
+        header.append(URL_HEADER).append(": ").append(url).append('\n');
+        String etag = conn.getHeaderField("ETag");
+        if (etag != null) {
+            header.append(ETAG_HEADER).append(": ").append(etag).append('\n');
+        }
+        String lastModified = conn.getHeaderField("Last-Modified");
+        if (lastModified != null) {
+            header.append(LAST_MODIFIED_HEADER).append(": ").append(lastModified).append('\n');
+        }
+        header.append('\n');
+        File tmp = null;
+        try {
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                throw new IOException(dir.getPath());
+            }
+            tmp = File.createTempFile(file.getName(), ".tmp", dir);
+            OutputStream out = new FileOutputStream(tmp);
+            try {
+                out.write(header.toString().getBytes(StandardCharsets.UTF_8));
+                out.write(content);
+            } finally {
+                out.close();
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            tmp = null;
+        } catch (IOException exc) {
+            configuration.message.warning("doclet.Link_cache_write_error",
+                    dir.getPath(), exc.toString());
+        } finally {
+            if (tmp != null) {
+                tmp.delete();
+            }
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                out.write(buf, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    private static int indexOf(byte[] bytes, byte b, int from) {
+        for (int i = from; i < bytes.length; i++) {
+            if (bytes[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
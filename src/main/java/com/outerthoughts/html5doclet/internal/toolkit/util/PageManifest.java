@@ -0,0 +1,359 @@
+/*
+ * Copyright (C) 2021, Thalia Nero
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  This particular file is
+ * designated as subject to the "Classpath" exception as provided in
+ * the LICENSE file that accompanies this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.outerthoughts.html5doclet.internal.toolkit.util;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.outerthoughts.html5doclet.internal.toolkit.Configuration;
+import com.outerthoughts.html5doclet.internal.toolkit.taglets.ValueTaglet;
+import com.sun.javadoc.*;
+
+/**
+ * The dependency manifest used by the "-incremental" option.  It records a
+ * fingerprint of the inputs of every generated class page, and a class page
+ * is only generated again if its fingerprint differs from the one recorded
+ * by the previous run.
+ *
+ * <p>The fingerprint of a class page covers the source files of the class
+ * and of all its supertypes, which supply the inherited members and
+ * documentation, the values of the constants their comments refer to with
+ * {&#64;value} or {&#64;link}, which may belong to classes that are not
+ * documented, the neighbouring classes in the navigation bar and a
+ * fingerprint of the whole run.  The latter covers the doclet version, the
+ * options, the package lists of "-link" and "-linkoffline" and the
+ * declarations and constant values of all documented classes and members, so
+ * that a change to the API of any class, which may show up in the links,
+ * the "dfu.shape" templates or the subclass lists of any page, regenerates
+ * all pages.  All other pages gather information from many classes and are
+ * always generated.
+ *
+ *  <p><b>This is NOT part of any supported API.
+ *  If you write code that depends on this, you do so at your own risk.
+ *  This code and its internal interfaces are subject to change or
+ *  deletion without notice.</b>
+ */
+public class PageManifest {
+
+    /**
+     * Options that do not change the generated pages.
+     */
+    /**
+     * The version of the fingerprints, changed whenever pages generated by
+     * an earlier version of the doclet must not be kept.
+     */
+    private static final String VERSION = "2";
+
+    private static final Set<String> IGNORED_OPTIONS = new HashSet<String>(
+        Arrays.asList("-threads", "-xtimeline", "-quiet", "-skipunchanged",
+            "-linkcache"));
+
+    private final Configuration configuration;
+
+    /**
+     * The fingerprint of the whole run.
+     */
+    private final String runFingerprint;
+
+    /**
+     * The fingerprints recorded by the previous run.
+     */
+    private final Map<String,String> previous;
+
+    /**
+     * The fingerprints of the pages of this run.
+     */
+    private final Map<String,String> current = new ConcurrentHashMap<String,String>();
+
+    /**
+     * The digests of the source files read so far.
+     */
+    private final Map<String,String> sourceDigests = new ConcurrentHashMap<String,String>();
+
+    private final AtomicInteger skipped = new AtomicInteger();
+
+    /**
+     * Read the manifest of the previous run, if any, and compute the
+     * fingerprint of this run.
+     *
+     * @param configuration the configuration of the run.
+     */
+    public PageManifest(Configuration configuration) {
+        this.configuration = configuration;
+        this.runFingerprint = runFingerprint();
+        this.previous = read();
+    }
+
+    /**
+     * Compute the fingerprint of the page of the given class.
+     *
+     * @param cd   the class documented by the page.
+     * @param prev the previous class in the navigation bar, or null.
+     * @param next the next class in the navigation bar, or null.
+     */
+    public String fingerprint(ClassDoc cd, ClassDoc prev, ClassDoc next) {
+        MessageDigest md = newDigest();
+        update(md, runFingerprint);
+        update(md, prev == null ? "" : prev.qualifiedName());
+        update(md, next == null ? "" : next.qualifiedName());
+        Set<ClassDoc> seen = new LinkedHashSet<ClassDoc>();
+        addSources(md, cd, seen);
+        for (ClassDoc c : seen) {
+            addReferencedConstants(md, c);
+            addReferencedConstants(md, configuration.docIndex.fields(c, false));
+            addReferencedConstants(md, configuration.docIndex.enumConstants(c));
+            addReferencedConstants(md, c.constructors(false));
+            addReferencedConstants(md, configuration.docIndex.methods(c, false));
+        }
+        return toHex(md.digest());
+    }
+
+    private void addSources(MessageDigest md, ClassDoc cd, Set<ClassDoc> seen) {
+        if (cd == null || !seen.add(cd)) {
+            return;
+        }
+        update(md, cd.qualifiedName());
+        update(md, sourceDigest(cd));
+        addSources(md, cd.superclass(), seen);
+        for (ClassDoc intf : cd.interfaces()) {
+            addSources(md, intf, seen);
+        }
+    }
+
+    private void addReferencedConstants(MessageDigest md, Doc[] docs) {
+        for (Doc doc : docs) {
+            addReferencedConstants(md, doc);
+        }
+    }
+
+    /**
+     * Add the values of the constants referred to by the comment of the
+     * given doc and by its block tags.
+     */
+    private void addReferencedConstants(MessageDigest md, Doc doc) {
+        addReferencedConstants(md, doc.inlineTags());
+        for (Tag tag : doc.tags()) {
+            addReferencedConstants(md, tag.inlineTags());
+        }
+    }
+
+    private void addReferencedConstants(MessageDigest md, Tag[] tags) {
+        for (Tag tag : tags) {
+            FieldDoc field = null;
+            if (tag.name().equals("@value")) {
+                field = ValueTaglet.getFieldDoc(configuration, tag, tag.text());
+            } else if (tag instanceof SeeTag
+                    && ((SeeTag) tag).referencedMember() instanceof FieldDoc) {
+                field = (FieldDoc) ((SeeTag) tag).referencedMember();
+            }
+            if (field != null) {
+                update(md, field.qualifiedName());
+                update(md, String.valueOf(field.constantValueExpression()));
+            }
+        }
+    }
+
+    /**
+     * Record the fingerprint of the given page and return true if the page
+     * must be generated, because it is missing or its inputs changed since
+     * the previous run.
+     *
+     * @param path        the path of the page.
+     * @param fingerprint the fingerprint of the inputs of the page.
+     */
+    public boolean needsGeneration(DocPath path, String fingerprint) {
+        String key = path.getPath();
+        current.put(key, fingerprint);
+        if (fingerprint.equals(previous.get(key))
+                && DocFile.createFileForOutput(configuration, path).exists()) {
+            skipped.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Return the number of pages that were not generated again.
+     */
+    public int getSkippedCount() {
+        return skipped.get();
+    }
+
+    /**
+     * Write the manifest for the pages of this run, to be read by the
+     * next run.
+     */
+    public void write() throws IOException {
+        DocFile file = DocFile.createFileForOutput(configuration, DocPaths.PAGE_MANIFEST);
+        Writer out = new BufferedWriter(new OutputStreamWriter(file.openOutputStream(), "UTF-8"));
+        try {
+            for (Map.Entry<String,String> entry : new TreeMap<String,String>(current).entrySet()) {
+                out.write(entry.getValue());
+                out.write(' ');
+                out.write(entry.getKey());
+                out.write('\n');
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    private Map<String,String> read() {
+        Map<String,String> map = new HashMap<String,String>();
+        DocFile file = DocFile.createFileForOutput(configuration, DocPaths.PAGE_MANIFEST);
+        if (!file.exists()) {
+            return map;
+        }
+        try {
+            BufferedReader in = new BufferedReader(
+                new InputStreamReader(file.openInputStream(), "UTF-8"));
+            try {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    int sep = line.indexOf(' ');
+                    if (sep > 0) {
+                        map.put(line.substring(sep + 1), line.substring(0, sep));
+                    }
+                }
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            configuration.message.warning("doclet.Manifest_unreadable",
+                DocPaths.PAGE_MANIFEST.getPath(), e.toString());
+            map.clear();
+        }
+        return map;
+    }
+
+    /**
+     * Compute the fingerprint of the doclet and manifest versions, the
+     * options, the external package lists and the declarations of the
+     * documented classes.
+     */
+    private String runFingerprint() {
+        MessageDigest md = newDigest();
+        update(md, VERSION);
+        update(md, configuration.getDocletSpecificBuildDate());
+        for (String[] option : configuration.root.options()) {
+            if (IGNORED_OPTIONS.contains(option[0].toLowerCase())) {
+                continue;
+            }
+            for (String s : option) {
+                update(md, s);
+            }
+        }
+        update(md, configuration.extern.getPackageListsDigest());
+        ClassDoc[] classes = configuration.root.classes().clone();
+        Arrays.sort(classes);
+        for (ClassDoc cd : classes) {
+            update(md, cd.modifiers());
+            update(md, cd.qualifiedName());
+            update(md, Arrays.toString(cd.typeParameters()));
+            update(md, String.valueOf(cd.superclassType()));
+            update(md, Arrays.toString(cd.interfaceTypes()));
+            update(md, String.valueOf(configuration.docIndex.isHidden(cd)));
+            update(md, String.valueOf(configuration.docIndex.getShapeTemplate(cd)));
+            update(md, String.valueOf(Util.isDeprecated(cd)));
+            addMembers(md, configuration.docIndex.fields(cd, false));
+            addMembers(md, configuration.docIndex.enumConstants(cd));
+            addMembers(md, cd.constructors(false));
+            addMembers(md, configuration.docIndex.methods(cd, false));
+            if (cd.isAnnotationType()) {
+                addMembers(md, configuration.docIndex.elements((AnnotationTypeDoc) cd));
+            }
+        }
+        return toHex(md.digest());
+    }
+
+    private void addMembers(MessageDigest md, ProgramElementDoc[] members) {
+        for (ProgramElementDoc member : members) {
+            update(md, member.modifiers());
+            update(md, member.name());
+            if (member instanceof ExecutableMemberDoc) {
+                update(md, ((ExecutableMemberDoc) member).signature());
+            }
+            if (member instanceof MethodDoc) {
+                update(md, String.valueOf(((MethodDoc) member).returnType()));
+            } else if (member instanceof FieldDoc) {
+                update(md, String.valueOf(((FieldDoc) member).type()));
+                update(md, String.valueOf(((FieldDoc) member).constantValueExpression()));
+            }
+            update(md, String.valueOf(configuration.docIndex.isHidden(member)));
+            update(md, String.valueOf(Util.isDeprecated(member)));
+        }
+    }
+
+    /**
+     * Return the digest of the source file of the given class, or an empty
+     * string if the class was read from a class file.
+     */
+    private String sourceDigest(ClassDoc cd) {
+        SourcePosition position = cd.position();
+        File file = position == null ? null : position.file();
+        if (file == null || !file.isFile()) {
+            // classes read from class files report their source file name only
+            return "";
+        }
+        String key = file.getPath();
+        String digest = sourceDigests.get(key);
+        if (digest == null) {
+            try {
+                digest = toHex(newDigest().digest(Files.readAllBytes(file.toPath())));
+            } catch (IOException e) {
+                // regenerate the page whenever the source cannot be read
+                digest = "unreadable " + System.nanoTime();
+            }
+            sourceDigests.put(key, digest);
+        }
+        return digest;
+    }
+
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new DocletAbortException(e);
+        }
+    }
+
+    static void update(MessageDigest md, String s) {
+        try {
+            md.update(s.getBytes("UTF-8"));
+        } catch (UnsupportedEncodingException e) {
+            throw new DocletAbortException(e);
+        }
+        md.update((byte) 0);
+    }
+
+    static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+            sb.append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+    }
+}
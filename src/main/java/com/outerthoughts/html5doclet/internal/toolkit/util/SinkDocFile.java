@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2021, Thalia Nero
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  This particular file is
+ * designated as subject to the "Classpath" exception as provided in
+ * the LICENSE file that accompanies this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.outerthoughts.html5doclet.internal.toolkit.util;
+
+import java.io.*;
+import java.util.Collections;
+
+import javax.tools.DocumentationTool;
+import javax.tools.JavaFileManager.Location;
+
+import com.outerthoughts.html5doclet.internal.toolkit.Configuration;
+
+/**
+ * A file in the output of the run that is written to an {@link OutputSink}.
+ * The files of a sink cannot be listed, and can only be read back if the
+ * sink supports it.
+ *
+ *  <p><b>This is NOT part of any supported API.
+ *  If you write code that depends on this, you do so at your own risk.
+ *  This code and its internal interfaces are subject to change or
+ *  deletion without notice.</b>
+ */
+class SinkDocFile extends DocFile {
+
+    private final Configuration configuration;
+
+    private final OutputSink sink;
+
+    SinkDocFile(Configuration configuration, OutputSink sink, DocPath path) {
+        super(configuration, DocumentationTool.Location.DOCUMENTATION_OUTPUT, path);
+        this.configuration = configuration;
+        this.sink = sink;
+    }
+
+    /** Open an input stream for the file, if the sink can read it back. */
+    public InputStream openInputStream() throws IOException {
+        return sink.openInputStream(path);
+    }
+
+    /** Open an output stream for the file. */
+    public OutputStream openOutputStream() throws IOException {
+        return sink.openOutputStream(path);
+    }
+
+    /**
+     * Open an writer for the file, using the encoding (if any) given in the
+     * doclet configuration.
+     */
+    public Writer openWriter() throws IOException, UnsupportedEncodingException {
+        OutputStream out = openOutputStream();
+        if (configuration.docencoding == null) {
+            return new BufferedWriter(new OutputStreamWriter(out));
+        } else {
+            return new BufferedWriter(new OutputStreamWriter(out, configuration.docencoding));
+        }
+    }
+
+    /** Return true if the file was written. */
+    public boolean canRead() {
+        return exists();
+    }
+
+    /** Return true, since files of a sink can always be written. */
+    public boolean canWrite() {
+        return true;
+    }
+
+    /** Return true if the file was written. */
+    public boolean exists() {
+        return sink.contains(path);
+    }
+
+    /** Return the base name (last component) of the file name. */
+    public String getName() {
+        return path.basename().getPath();
+    }
+
+    /** Return the file system path for this file. */
+    public String getPath() {
+        return path.getPath();
+    }
+
+    /** Return false, since the path is relative to the output. */
+    public boolean isAbsolute() {
+        return false;
+    }
+
+    /** Return false, since a sink holds no directories. */
+    public boolean isDirectory() {
+        return false;
+    }
+
+    /** Return true if the file was written. */
+    public boolean isFile() {
+        return exists();
+    }
+
+    /** Return true if this file is the same as another. */
+    public boolean isSameFile(DocFile other) {
+        return other instanceof SinkDocFile && path.equals(other.path);
+    }
+
+    /** Return an empty list, since the files of a sink cannot be listed. */
+    public Iterable<DocFile> list() {
+        return Collections.<DocFile>emptyList();
+    }
+
+    /** Return true, since a sink needs no directories. */
+    public boolean mkdirs() {
+        return true;
+    }
+
+    /** Resolve a relative path against this file. */
+    public DocFile resolve(DocPath p) {
+        return new SinkDocFile(configuration, sink, path.resolve(p));
+    }
+
+    /** Resolve a relative path against this file. */
+    public DocFile resolve(String p) {
+        return new SinkDocFile(configuration, sink, path.resolve(p));
+    }
+
+    /** Return this file, which is already relative to the output. */
+    public DocFile resolveAgainst(Location locn) {
+        if (locn != DocumentationTool.Location.DOCUMENTATION_OUTPUT)
+            throw new IllegalArgumentException();
+        return this;
+    }
+
+    /** Return a string to identify the contents of this object. */
+    @Override
+    public String toString() {
+        return "SinkDocFile[path:" + path.getPath() + "]";
+    }
+}
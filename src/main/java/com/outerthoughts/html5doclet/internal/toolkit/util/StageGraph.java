@@ -0,0 +1,257 @@
+/*
+ * Copyright (C) 2021, Thalia Nero
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  This particular file is
+ * designated as subject to the "Classpath" exception as provided in
+ * the LICENSE file that accompanies this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.outerthoughts.html5doclet.internal.toolkit.util;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * A graph of the stages that generate the documentation.  Each stage is
+ * a named unit of output, such as the class pages or the index, and may
+ * depend on stages added before it.  Stages without a dependency between
+ * them may be run concurrently.
+ *
+ *  <p><b>This is NOT part of any supported API.
+ *  If you write code that depends on this, you do so at your own risk.
+ *  This code and its internal interfaces are subject to change or
+ *  deletion without notice.</b>
+ */
+public class StageGraph {
+
+    /**
+     * A unit of documentation output.
+     */
+    public interface Stage {
+        void run() throws Exception;
+    }
+
+    /**
+     * The wall-clock time at which a stage ran, relative to the start
+     * of the run.
+     */
+    public static class Timing {
+        public final String name;
+        public final String thread;
+        public final long startMillis;
+        public final long endMillis;
+
+        Timing(String name, String thread, long startMillis, long endMillis) {
+            this.name = name;
+            this.thread = thread;
+            this.startMillis = startMillis;
+            this.endMillis = endMillis;
+        }
+    }
+
+    private static class Node {
+        final String name;
+        final Stage stage;
+        final List<Node> dependencies;
+        final List<Node> dependents = new ArrayList<Node>();
+        final int index;
+        int unfinished;
+
+        Node(String name, Stage stage, List<Node> dependencies, int index) {
+            this.name = name;
+            this.stage = stage;
+            this.dependencies = dependencies;
+            this.index = index;
+        }
+    }
+
+    /**
+     * The stages in the order they were added, which is also an order
+     * that satisfies their dependencies.
+     */
+    private final Map<String,Node> nodes = new LinkedHashMap<String,Node>();
+
+    private final List<Timing> timeline = new ArrayList<Timing>();
+
+    /**
+     * Add a stage to the graph.
+     *
+     * @param name the unique name of the stage.
+     * @param stage the stage.
+     * @param dependencies the names of the stages that must finish before
+     *                     this stage starts.  They must already be added.
+     * @throws IllegalArgumentException if the name is already used or a
+     *                                  dependency is unknown.
+     */
+    public void addStage(String name, Stage stage, String... dependencies) {
+        if (nodes.containsKey(name)) {
+            throw new IllegalArgumentException("Duplicate stage: " + name);
+        }
+        List<Node> deps = new ArrayList<Node>(dependencies.length);
+        for (String dependency : dependencies) {
+            Node dep = nodes.get(dependency);
+            if (dep == null) {
+                throw new IllegalArgumentException("Unknown stage: " + dependency);
+            }
+            deps.add(dep);
+        }
+        Node node = new Node(name, stage, deps, nodes.size());
+        for (Node dep : deps) {
+            dep.dependents.add(node);
+        }
+        nodes.put(name, node);
+    }
+
+    /**
+     * Return true if a stage with the given name has been added.
+     */
+    public boolean hasStage(String name) {
+        return nodes.containsKey(name);
+    }
+
+    /**
+     * Return the timeline of the last run, in the order the stages finished.
+     */
+    public List<Timing> getTimeline() {
+        return Collections.unmodifiableList(timeline);
+    }
+
+    /**
+     * Run all stages.  With a single thread the stages run on the calling
+     * thread in the order they were added.  Otherwise each stage is started
+     * as soon as its dependencies have finished.  If stages fail, no further
+     * stages are started and the failure of the earliest added failing stage
+     * is thrown once the running stages have finished.
+     *
+     * @param threads the maximum number of stages to run at once.
+     */
+    public void run(int threads) throws Exception {
+        timeline.clear();
+        long origin = System.nanoTime();
+        if (threads <= 1 || nodes.size() <= 1) {
+            for (Node node : nodes.values()) {
+                runStage(node, origin);
+            }
+        } else {
+            runConcurrently(threads, origin);
+        }
+    }
+
+    private void runConcurrently(int threads, final long origin) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(threads, nodes.size()), new ThreadFactory() {
+                    private int count = 0;
+                    public synchronized Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, "doclet-stage-" + (++count));
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+        CompletionService<Node> completion = new ExecutorCompletionService<Node>(executor);
+        SortedMap<Integer,Throwable> failures = new TreeMap<Integer,Throwable>();
+        try {
+            int running = 0;
+            for (Node node : nodes.values()) {
+                node.unfinished = node.dependencies.size();
+                if (node.unfinished == 0) {
+                    submit(completion, node, origin);
+                    running++;
+                }
+            }
+            while (running > 0) {
+                Future<Node> done = takeFinished(completion);
+                running--;
+                Node node;
+                try {
+                    node = done.get();
+                } catch (ExecutionException e) {
+                    StageFailure failure = (StageFailure) e.getCause();
+                    failures.put(failure.node.index, failure.getCause());
+                    continue;
+                }
+                if (!failures.isEmpty()) {
+                    continue;
+                }
+                for (Node dependent : node.dependents) {
+                    if (--dependent.unfinished == 0) {
+                        submit(completion, dependent, origin);
+                        running++;
+                    }
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        if (!failures.isEmpty()) {
+            Throwable t = failures.get(failures.firstKey());
+            if (t instanceof Exception) {
+                throw (Exception) t;
+            }
+            throw (Error) t;
+        }
+    }
+
+    private Future<Node> takeFinished(CompletionService<Node> completion) {
+        try {
+            return completion.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DocletAbortException(e);
+        }
+    }
+
+    private void submit(CompletionService<Node> completion, final Node node,
+            final long origin) {
+        completion.submit(new Callable<Node>() {
+            public Node call() throws StageFailure {
+                try {
+                    runStage(node, origin);
+                } catch (Exception e) {
+                    throw new StageFailure(node, e);
+                } catch (Error e) {
+                    throw new StageFailure(node, e);
+                }
+                return node;
+            }
+        });
+    }
+
+    private void runStage(Node node, long origin) throws Exception {
+        long start = System.nanoTime();
+        try {
+            node.stage.run();
+        } finally {
+            long end = System.nanoTime();
+            synchronized (timeline) {
+                timeline.add(new Timing(node.name, Thread.currentThread().getName(),
+                        TimeUnit.NANOSECONDS.toMillis(start - origin),
+                        TimeUnit.NANOSECONDS.toMillis(end - origin)));
+            }
+        }
+    }
+
+    /**
+     * Carries the failure of a stage out of the executor.
+     */
+    private static class StageFailure extends Exception {
+        private static final long serialVersionUID = 0;
+
+        final transient Node node;
+
+        StageFailure(Node node, Throwable cause) {
+            super(cause);
+            this.node = node;
+        }
+    }
+}
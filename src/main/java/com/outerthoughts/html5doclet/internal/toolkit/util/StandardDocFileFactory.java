@@ -70,7 +70,7 @@ class StandardDocFileFactory extends DocFileFactory {
         fileManager = (StandardJavaFileManager) configuration.getFileManager();
     }
 
-    private File getDestDir() {
+    private synchronized File getDestDir() {
         if (destDir == null) {
             if (!configuration.destDirName.isEmpty()
                     || !fileManager.hasLocation(DocumentationTool.Location.DOCUMENTATION_OUTPUT)) {
@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2021, Thalia Nero
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  This particular file is
+ * designated as subject to the "Classpath" exception as provided in
+ * the LICENSE file that accompanies this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.outerthoughts.html5doclet.internal.toolkit.util;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.outerthoughts.html5doclet.internal.toolkit.Configuration;
+
+/**
+ * Writes the generated files to the destination directory, but leaves
+ * files whose content did not change untouched, set with the
+ * "-skipunchanged" option.  Rewriting a file with the same content still
+ * changes its modification time, which makes tools that synchronize the
+ * documentation copy every file again.
+ *
+ * <p>Each file is collected in memory until it is closed and then hashed.
+ * The hash is compared with the one recorded for the file by the previous
+ * run, and the file is only written if the hashes differ or the file is
+ * missing.  The hashes are recorded in a manifest in the
+ * destination directory.  The option is most useful together with
+ * "-notimestamp", since the timestamps make every page change.
+ *
+ *  <p><b>This is NOT part of any supported API.
+ *  If you write code that depends on this, you do so at your own risk.
+ *  This code and its internal interfaces are subject to change or
+ *  deletion without notice.</b>
+ */
+public class UnchangedOutputSink implements OutputSink {
+
+    private final Configuration configuration;
+
+    /**
+     * The hashes recorded by the previous run.
+     */
+    private final Map<String,String> previous;
+
+    /**
+     * The hashes of the files written by this run.
+     */
+    private final Map<String,String> current = new ConcurrentHashMap<String,String>();
+
+    private final AtomicInteger skipped = new AtomicInteger();
+
+    private boolean closed;
+
+    /**
+     * Read the manifest of the previous run, if any.
+     *
+     * @param configuration the configuration of the run.
+     */
+    public UnchangedOutputSink(Configuration configuration) {
+        this.configuration = configuration;
+        this.previous = read();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public OutputStream openOutputStream(final DocPath path) {
+        return new ByteArrayOutputStream() {
+            private boolean written;
+
+            @Override
+            public void close() throws IOException {
+                if (!written) {
+                    written = true;
+                    writeIfChanged(path, toByteArray());
+                }
+            }
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public InputStream openInputStream(DocPath path) throws IOException {
+        return getFile(path).openInputStream();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean contains(DocPath path) {
+        return getFile(path).exists();
+    }
+
+    /**
+     * Return the number of files that were left untouched.
+     */
+    public int getSkippedCount() {
+        return skipped.get();
+    }
+
+    /**
+     * Write the manifest for the files of this run, to be read by the next
+     * run.  The entries of files that were not generated by this run, but
+     * still exist, are kept.
+     */
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        Map<String,String> manifest = new TreeMap<String,String>(current);
+        for (Map.Entry<String,String> entry : previous.entrySet()) {
+            if (!manifest.containsKey(entry.getKey())
+                    && getFile(DocPath.create(entry.getKey())).exists()) {
+                manifest.put(entry.getKey(), entry.getValue());
+            }
+        }
+        if (manifest.equals(previous)) {
+            return;
+        }
+        DocFile file = getFile(DocPaths.OUTPUT_MANIFEST);
+        Writer out = new BufferedWriter(new OutputStreamWriter(file.openOutputStream(), "UTF-8"));
+        try {
+            for (Map.Entry<String,String> entry : manifest.entrySet()) {
+                out.write(entry.getValue());
+                out.write(' ');
+                out.write(entry.getKey());
+                out.write('\n');
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    private void writeIfChanged(DocPath path, byte[] data) throws IOException {
+        String key = path.getPath();
+        String hash = PageManifest.toHex(PageManifest.newDigest().digest(data));
+        current.put(key, hash);
+        DocFile file = getFile(path);
+        if (hash.equals(previous.get(key)) && file.exists()) {
+            skipped.incrementAndGet();
+            return;
+        }
+        OutputStream out = file.openOutputStream();
+        try {
+            out.write(data);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Return the file in the destination directory, bypassing the sink.
+     */
+    private DocFile getFile(DocPath path) {
+        return DocFileFactory.getFactory(configuration).createFileForOutput(path);
+    }
+
+    private Map<String,String> read() {
+        Map<String,String> map = new HashMap<String,String>();
+        DocFile file = getFile(DocPaths.OUTPUT_MANIFEST);
+        if (!file.exists()) {
+            return map;
+        }
+        try {
+            BufferedReader in = new BufferedReader(
+                new InputStreamReader(file.openInputStream(), "UTF-8"));
+            try {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    int sep = line.indexOf(' ');
+                    if (sep > 0) {
+                        map.put(line.substring(sep + 1), line.substring(0, sep));
+                    }
+                }
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            configuration.message.warning("doclet.Manifest_unreadable",
+                DocPaths.OUTPUT_MANIFEST.getPath(), e.toString());
+            map.clear();
+        }
+        return map;
+    }
+}
@@ -47,6 +47,12 @@ import javax.tools.StandardLocation;
  */
 public class Util {
 
+    /**
+     * Guards the lookups of class names in the javadoc model, which are not
+     * cached and may load classes while the pages are generated concurrently.
+     */
+    private static final Object findClassLock = new Object();
+
     /**
      * Return array of class members whose documentation is to be generated.
      * If the member is deprecated do not include such a member in the
@@ -127,6 +133,53 @@ public class Util {
         return null;
     }
 
+    /**
+     * Find the class with the given name as seen from the given class.
+     *
+     * @param  cd        the class in whose context the name is resolved.
+     * @param  className the simple or qualified name of the class.
+     * @return ClassDoc  the class found, null otherwise.
+     * @see ClassDoc#findClass(String)
+     */
+    public static ClassDoc findClass(ClassDoc cd, String className) {
+        synchronized (findClassLock) {
+            return cd.findClass(className);
+        }
+    }
+
+    /**
+     * Return the exception documented by the given throws tag.
+     *
+     * @see ThrowsTag#exception()
+     */
+    public static ClassDoc exception(ThrowsTag tag) {
+        synchronized (findClassLock) {
+            return tag.exception();
+        }
+    }
+
+    /**
+     * Return the type of the exception documented by the given throws tag.
+     *
+     * @see ThrowsTag#exceptionType()
+     */
+    public static Type exceptionType(ThrowsTag tag) {
+        synchronized (findClassLock) {
+            return tag.exceptionType();
+        }
+    }
+
+    /**
+     * Return the class of the field documented by the given serialField tag.
+     *
+     * @see SerialFieldTag#fieldTypeDoc()
+     */
+    public static ClassDoc fieldTypeDoc(SerialFieldTag tag) {
+        synchronized (findClassLock) {
+            return tag.fieldTypeDoc();
+        }
+    }
+
     /**
      * @param member1 the first method to compare.
      * @param member2 the second method to compare.
@@ -528,7 +581,7 @@ public class Util {
         while (sup != null &&
                   (! (supClassDoc.isPublic() ||
                               isLinkable(supClassDoc, configuration)) ||
-                      supClassDoc.tags("dfu.hidden").length != 0) ) {
+                      configuration.docIndex.isHidden(supClassDoc)) ) {
             if (supClassDoc.superclass().qualifiedName().equals(supClassDoc.qualifiedName()))
                 break;
             sup = supClassDoc.superclassType();
@@ -673,7 +726,7 @@ public class Util {
                 sb.append(configuration.getText("doclet.enum_values_doc.main", classDoc.name()));
                 sb.append("\n@return ");
                 sb.append(configuration.getText("doclet.enum_values_doc.return"));
-                currentMethod.setRawCommentText(sb.toString());
+                setRawCommentText(currentMethod, sb.toString());
             } else if (currentMethod.name().equals("valueOf") &&
                     currentMethod.parameters().length == 1) {
                 Type paramType = currentMethod.parameters()[0].type();
@@ -689,12 +742,23 @@ public class Util {
                 sb.append(configuration.getText("doclet.enum_valueof_doc.throws_ila"));
                 sb.append("\n@throws NullPointerException ");
                 sb.append(configuration.getText("doclet.enum_valueof_doc.throws_npe"));
-                currentMethod.setRawCommentText(sb.toString());
+                setRawCommentText(currentMethod, sb.toString());
                 }
             }
         }
     }
 
+    /**
+     * Set the raw comment text of the given doc, unless it already has that
+     * text.  Setting the text discards the parsed comment, so skipping it
+     * keeps comments preloaded by {@link DocPreloader}.
+     */
+    private static void setRawCommentText(Doc doc, String rawDocumentation) {
+        if (!rawDocumentation.equals(doc.getRawCommentText())) {
+            doc.setRawCommentText(rawDocumentation);
+        }
+    }
+
     /**
      *  Return true if the given Doc is deprecated.
      *
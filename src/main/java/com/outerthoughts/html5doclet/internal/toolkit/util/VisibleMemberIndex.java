@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2021, Thalia Nero
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  This particular file is
+ * designated as subject to the "Classpath" exception as provided in
+ * the LICENSE file that accompanies this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.outerthoughts.html5doclet.internal.toolkit.util;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import com.outerthoughts.html5doclet.internal.toolkit.Configuration;
+import com.sun.javadoc.*;
+
+/**
+ * The visible members of every class, shared by all builders and writers
+ * of a run.  The summary builders, the member builders and the navigation
+ * bar of a class page used to map the same class hierarchy again and
+ * again, each with its own {@link VisibleMemberMap}.
+ *
+ * <p>Each map is built once per class and kind of member, on first use.
+ * Which members of a supertype are visible depends on the package and the
+ * hierarchy of the class being mapped, but the members that a supertype
+ * contributes do not, so the contribution of each supertype is extracted
+ * once and reused by the maps of all of its subclasses.
+ *
+ * <p>The index also holds the JavaFX properties found in each class, with
+ * their getters, setters and comment sources.  It belongs to a single run
+ * and is cleared when the run ends, so that nothing of the run is kept
+ * alive by the doclet classes.
+ *
+ *  <p><b>This is NOT part of any supported API.
+ *  If you write code that depends on this, you do so at your own risk.
+ *  This code and its internal interfaces are subject to change or
+ *  deletion without notice.</b>
+ */
+public class VisibleMemberIndex {
+
+    /**
+     * A class and a slot, which is the kind of member for maps, and the
+     * kind of member and the filter flag for contributions.
+     */
+    private static final class Key {
+        final ClassDoc cd;
+        final int slot;
+
+        Key(ClassDoc cd, int slot) {
+            this.cd = cd;
+            this.slot = slot;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return cd.equals(other.cd) && slot == other.slot;
+        }
+
+        @Override
+        public int hashCode() {
+            return cd.hashCode() * 31 + slot;
+        }
+    }
+
+    private final Configuration configuration;
+
+    private final ConcurrentMap<Key,VisibleMemberMap> maps =
+            new ConcurrentHashMap<Key,VisibleMemberMap>();
+
+    private final ConcurrentMap<Key,List<ProgramElementDoc>> contributions =
+            new ConcurrentHashMap<Key,List<ProgramElementDoc>>();
+
+    /**
+     * The JavaFX properties of each class.
+     */
+    final ConcurrentMap<ClassDoc,ProgramElementDoc[]> propertiesCache =
+            new ConcurrentHashMap<ClassDoc,ProgramElementDoc[]>();
+
+    /**
+     * The member that supplies the comment of each property method.
+     */
+    final ConcurrentMap<ProgramElementDoc,ProgramElementDoc> classPropertiesMap =
+            new ConcurrentHashMap<ProgramElementDoc,ProgramElementDoc>();
+
+    /**
+     * The getter and setter of each property method.
+     */
+    final ConcurrentMap<ProgramElementDoc,VisibleMemberMap.GetterSetter> getterSetterMap =
+            new ConcurrentHashMap<ProgramElementDoc,VisibleMemberMap.GetterSetter>();
+
+    /**
+     * Construct an empty index.
+     *
+     * @param configuration the configuration of the run.
+     */
+    public VisibleMemberIndex(Configuration configuration) {
+        this.configuration = configuration;
+    }
+
+    /**
+     * Return the map of the visible members of the given kind for the
+     * given class.  The map is shared and must not be modified.
+     *
+     * @param cd   the class whose members are mapped.
+     * @param kind the kind of member, one of the constants of
+     *             {@link VisibleMemberMap}.
+     */
+    public VisibleMemberMap getVisibleMemberMap(final ClassDoc cd, final int kind) {
+        Key key = new Key(cd, kind);
+        VisibleMemberMap map = maps.get(key);
+        if (map == null) {
+            map = maps.computeIfAbsent(key, new Function<Key,VisibleMemberMap>() {
+                public VisibleMemberMap apply(Key k) {
+                    return new VisibleMemberMap(cd, kind, configuration);
+                }
+            });
+        }
+        return map;
+    }
+
+    /**
+     * Return the members of the given kind that the given class contributes
+     * to the maps of its subclasses, computing them on first use.
+     */
+    List<ProgramElementDoc> getContribution(ClassDoc cd, int kind, boolean filter,
+            Supplier<List<ProgramElementDoc>> members) {
+        Key key = new Key(cd, kind * 2 + (filter ? 1 : 0));
+        List<ProgramElementDoc> list = contributions.get(key);
+        if (list == null) {
+            list = Collections.unmodifiableList(members.get());
+            List<ProgramElementDoc> previous = contributions.putIfAbsent(key, list);
+            if (previous != null) {
+                list = previous;
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Discard all maps and caches.  Called at the end of the run.
+     */
+    public void clear() {
+        maps.clear();
+        contributions.clear();
+        propertiesCache.clear();
+        classPropertiesMap.clear();
+        getterSetterMap.clear();
+    }
+}
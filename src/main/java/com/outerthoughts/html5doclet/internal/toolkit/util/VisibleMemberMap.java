@@ -28,6 +28,7 @@
 package com.outerthoughts.html5doclet.internal.toolkit.util;
 
 import java.util.*;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
 
 import com.sun.javadoc.*;
@@ -74,12 +75,19 @@ public class VisibleMemberMap {
      */
     private final List<ClassDoc> visibleClasses = new ArrayList<ClassDoc>();
 
+    /**
+     * The visible classes, with the classes before the interfaces.
+     */
+    private final List<ClassDoc> sortedVisibleClasses;
+
     /**
      * Map for each member name on to a map which contains members with same
      * name-signature. The mapped map will contain mapping for each MemberDoc
-     * onto it's respecive level string.
+     * onto it's respecive level string. The map keeps insertion order so
+     * that {@link #getClassMember} matches the same member regardless of
+     * the identity hash codes of the keys.
      */
-    private final Map<Object,Map<ProgramElementDoc,String>> memberNameMap = new HashMap<Object,Map<ProgramElementDoc,String>>();
+    private final Map<Object,Map<ProgramElementDoc,String>> memberNameMap = new LinkedHashMap<Object,Map<ProgramElementDoc,String>>();
 
     /**
      * Map of class and it's ClassMembers object.
@@ -102,12 +110,11 @@ public class VisibleMemberMap {
      */
     private final Configuration configuration;
 
-    private static final Map<ClassDoc, ProgramElementDoc[]> propertiesCache =
-            new HashMap<ClassDoc, ProgramElementDoc[]>();
-    private static final Map<ProgramElementDoc, ProgramElementDoc> classPropertiesMap =
-            new HashMap<ProgramElementDoc, ProgramElementDoc>();
-    private static final Map<ProgramElementDoc, GetterSetter> getterSetterMap =
-            new HashMap<ProgramElementDoc, GetterSetter>();
+    /**
+     * The index of the run, which holds the JavaFX property caches shared
+     * by all maps.
+     */
+    private final VisibleMemberIndex index;
 
     /**
      * Construct a VisibleMemberMap of the given type for the given
@@ -126,7 +133,11 @@ public class VisibleMemberMap {
         this.classdoc = classdoc;
         this.kind = kind;
         this.configuration = configuration;
+        this.index = configuration.visibleMemberIndex;
         new ClassMembers(classdoc, STARTLEVEL).build();
+        List<ClassDoc> sorted = new ArrayList<ClassDoc>(visibleClasses);
+        sort(sorted);
+        sortedVisibleClasses = Collections.unmodifiableList(sorted);
     }
 
     /**
@@ -135,8 +146,7 @@ public class VisibleMemberMap {
      * @return the list of visible classes in this map.
      */
     public List<ClassDoc> getVisibleClassesList() {
-        sort(visibleClasses);
-        return visibleClasses;
+        return sortedVisibleClasses;
     }
 
     /**
@@ -145,7 +155,7 @@ public class VisibleMemberMap {
      * @return the property field documentation, null if there is none.
      */
     public ProgramElementDoc getPropertyMemberDoc(ProgramElementDoc ped) {
-        return classPropertiesMap.get(ped);
+        return index.classPropertiesMap.get(ped);
     }
 
     /**
@@ -154,7 +164,7 @@ public class VisibleMemberMap {
      * @return the getter documentation, null if there is none.
      */
     public ProgramElementDoc getGetterForProperty(ProgramElementDoc propertyMethod) {
-        return getterSetterMap.get(propertyMethod).getGetter();
+        return index.getterSetterMap.get(propertyMethod).getGetter();
     }
 
     /**
@@ -163,7 +173,7 @@ public class VisibleMemberMap {
      * @return the setter documentation, null if there is none.
      */
     public ProgramElementDoc getSetterForProperty(ProgramElementDoc propertyMethod) {
-        return getterSetterMap.get(propertyMethod).getSetter();
+        return index.getterSetterMap.get(propertyMethod).getSetter();
     }
 
     /**
@@ -202,7 +212,8 @@ public class VisibleMemberMap {
     }
 
     /**
-     * Retrn the list of members for the given class.
+     * Retrn the list of members for the given class.  The list is a copy,
+     * since the map may be shared.
      *
      * @param cd the class to retrieve the list of visible members for.
      *
@@ -213,7 +224,7 @@ public class VisibleMemberMap {
         if (clmembers == null) {
             return new ArrayList<ProgramElementDoc>();
         }
-        return clmembers.getMembers();
+        return new ArrayList<ProgramElementDoc>(clmembers.getMembers());
     }
 
     /**
@@ -379,7 +390,7 @@ public class VisibleMemberMap {
                     memberIsVisible(pgmelem) &&
                     !isOverridden(pgmelem, level) &&
                     !isTreatedAsPrivate(pgmelem)
-                    && (pgmelem.isMethod() || pgmelem.tags("dfu.hidden").length == 0)) {
+                    && (pgmelem.isMethod() || !configuration.docIndex.isHidden(pgmelem))) {
                         incllist.add(pgmelem);
                 }
             }
@@ -427,9 +438,19 @@ public class VisibleMemberMap {
         }
 
         /**
-         * Return all available class members.
+         * Return all available class members.  The members are shared
+         * through the visible member index of the run.
          */
-        private List<ProgramElementDoc> getClassMembers(ClassDoc cd, boolean filter) {
+        private List<ProgramElementDoc> getClassMembers(final ClassDoc cd, final boolean filter) {
+            return index.getContribution(cd, kind, filter,
+                new Supplier<List<ProgramElementDoc>>() {
+                    public List<ProgramElementDoc> get() {
+                        return computeClassMembers(cd, filter);
+                    }
+                });
+        }
+
+        private List<ProgramElementDoc> computeClassMembers(ClassDoc cd, boolean filter) {
             if (cd.isEnum() && kind == CONSTRUCTORS) {
                 //If any of these rules are hit, return empty array because
                 //we don't document these members ever.
@@ -438,7 +459,7 @@ public class VisibleMemberMap {
             ProgramElementDoc[] members = null;
             switch (kind) {
                 case ANNOTATION_TYPE_FIELDS:
-                    members = cd.fields(filter);
+                    members = configuration.docIndex.fields(cd, filter);
                     break;
                 case ANNOTATION_TYPE_MEMBER_OPTIONAL:
                     members = cd.isAnnotationType() ?
@@ -451,19 +472,19 @@ public class VisibleMemberMap {
                         new AnnotationTypeElementDoc[] {};
                     break;
                 case INNERCLASSES:
-                    members = cd.innerClasses(filter);
+                    members = configuration.docIndex.innerClasses(cd, filter);
                     break;
                 case ENUM_CONSTANTS:
-                    members = cd.enumConstants();
+                    members = configuration.docIndex.enumConstants(cd);
                     break;
                 case FIELDS:
-                    members = cd.fields(filter);
+                    members = configuration.docIndex.fields(cd, filter);
                     break;
                 case CONSTRUCTORS:
-                    members = cd.constructors();
+                    members = configuration.docIndex.constructors(cd);
                     break;
                 case METHODS:
-                    members = cd.methods(filter);
+                    members = configuration.docIndex.methods(cd, filter);
                     checkOnPropertiesTags((MethodDoc[])members);
                     break;
                 case PROPERTIES:
@@ -492,7 +513,7 @@ public class VisibleMemberMap {
          */
         private AnnotationTypeElementDoc[] filter(AnnotationTypeDoc doc,
             boolean required) {
-            AnnotationTypeElementDoc[] members = doc.elements();
+            AnnotationTypeElementDoc[] members = configuration.docIndex.elements(doc);
             List<AnnotationTypeElementDoc> targetMembers = new ArrayList<AnnotationTypeElementDoc>();
             for (int i = 0; i < members.length; i++) {
                 if ((required && members[i].defaultValue() == null) ||
@@ -537,13 +558,14 @@ public class VisibleMemberMap {
         }
 
         private ProgramElementDoc[] properties(final ClassDoc cd, final boolean filter) {
-            final MethodDoc[] allMethods = cd.methods(filter);
-            final FieldDoc[] allFields = cd.fields(false);
-
-            if (propertiesCache.containsKey(cd)) {
-                return propertiesCache.get(cd);
+            ProgramElementDoc[] cached = index.propertiesCache.get(cd);
+            if (cached != null) {
+                return cached;
             }
 
+            final MethodDoc[] allMethods = configuration.docIndex.methods(cd, filter);
+            final FieldDoc[] allFields = configuration.docIndex.fields(cd, false);
+
             final List<MethodDoc> result = new ArrayList<MethodDoc>();
 
             for (final MethodDoc propertyMethod : allMethods) {
@@ -557,13 +579,13 @@ public class VisibleMemberMap {
                 final FieldDoc field = fieldForProperty(allFields, propertyMethod);
 
                 addToPropertiesMap(setter, getter, propertyMethod, field);
-                getterSetterMap.put(propertyMethod, new GetterSetter(getter, setter));
+                index.getterSetterMap.put(propertyMethod, new GetterSetter(getter, setter));
                 result.add(propertyMethod);
             }
             final ProgramElementDoc[] resultAray =
                     result.toArray(new ProgramElementDoc[result.size()]);
-            propertiesCache.put(cd, resultAray);
-            return resultAray;
+            cached = index.propertiesCache.putIfAbsent(cd, resultAray);
+            return cached != null ? cached : resultAray;
         }
 
         private void addToPropertiesMap(MethodDoc setter,
@@ -596,7 +618,7 @@ public class VisibleMemberMap {
              */
             if ((null == methodRawCommentText || 0 == methodRawCommentText.length())
                     || propertyMethod.equals(commentSource)) {
-                classPropertiesMap.put(propertyMethod, commentSource);
+                index.classPropertiesMap.put(propertyMethod, commentSource);
             }
         }
 
@@ -719,7 +741,7 @@ public class VisibleMemberMap {
         }
     }
 
-    private class GetterSetter {
+    static class GetterSetter {
         private final ProgramElementDoc getter;
         private final ProgramElementDoc setter;
 
@@ -28,14 +28,15 @@
 package com.outerthoughts.html5doclet.internal.toolkit.util.links;
 
 import java.util.List;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
+import com.outerthoughts.html5doclet.formats.html.ConfigurationImpl;
 import com.outerthoughts.html5doclet.formats.html.LinkInfoImpl;
 import com.outerthoughts.html5doclet.internal.toolkit.Content;
 import com.sun.javadoc.AnnotationDesc;
 import com.sun.javadoc.ClassDoc;
 import com.sun.javadoc.Doc;
-import com.sun.javadoc.Tag;
 import com.sun.javadoc.Type;
 import com.sun.javadoc.WildcardType;
 
@@ -134,9 +135,9 @@ public abstract class LinkFactory {
                 } else {
                     linkInfo.classDoc = type.asClassDoc();
                     link = newContent();
-                    String dfuShapeTemplate = getShapeTemplate(linkInfo);
-                    if (dfuShapeTemplate != null) {
-                        addCustomShapedType(linkInfo, link, dfuShapeTemplate, new Content[0]);
+                    ShapeProgram dfuShape = getShapeProgram(linkInfo);
+                    if (dfuShape.isPresent()) {
+                        addCustomShapedType(linkInfo, link, dfuShape, new Content[0]);
                     } else {
                         link.addContent(getClassLink(linkInfo, "Type"));
                         if (linkInfo.includeTypeAsSepLink) {
@@ -192,9 +193,9 @@ public abstract class LinkFactory {
         if (ctor.asTypeVariable() == null && ctor.asClassDoc() != null) {
             LinkInfo innerInfo = makeLink(linkInfo, ctor);
             innerInfo.classDoc = ctor.asClassDoc();
-            String innerTemplate = getShapeTemplate(innerInfo);
-            if (innerTemplate != null) {
-                addCustomShapedType(innerInfo, link, innerTemplate, params);
+            ShapeProgram innerShape = getShapeProgram(innerInfo);
+            if (innerShape.isPresent()) {
+                addCustomShapedType(innerInfo, link, innerShape, params);
                 customShape = true;
             }
         }
@@ -211,27 +212,46 @@ public abstract class LinkFactory {
         }
     }
 
-    private String getShapeTemplate(LinkInfo linkInfo) {
-        String dfuShapeTemplate;
-        String overrideTemplate = ((LinkInfoImpl) linkInfo).configuration.templateStringsByClass.get(linkInfo.classDoc.qualifiedName());
-        if (overrideTemplate != null) {
-            dfuShapeTemplate = overrideTemplate;
-        } else {
-            Tag[] dfuRendering = linkInfo.classDoc.tags("dfu.shape");
-            if (dfuRendering.length != 0) {
-                dfuShapeTemplate = dfuRendering[0].text();
-            } else {
-                dfuShapeTemplate = null;
-            }
+    /**
+     * Return the compiled type shape of the linked class.  Each class is
+     * compiled once per run, and a malformed template is reported when
+     * it is compiled.
+     */
+    private ShapeProgram getShapeProgram(LinkInfo linkInfo) {
+        final ConfigurationImpl configuration = ((LinkInfoImpl) linkInfo).configuration;
+        final ClassDoc classDoc = linkInfo.classDoc;
+        String name = configuration.docIndex.qualifiedName(classDoc);
+        ShapeProgram program = configuration.shapePrograms.get(name);
+        if (program == null) {
+            program = configuration.shapePrograms.computeIfAbsent(name,
+                new Function<String,ShapeProgram>() {
+                    public ShapeProgram apply(String n) {
+                        return compileShape(configuration, classDoc, n);
+                    }
+                });
+        }
+        return program;
+    }
+
+    private static ShapeProgram compileShape(ConfigurationImpl configuration, ClassDoc classDoc,
+            String name) {
+        String template = configuration.templateStringsByClass.get(name);
+        if (template == null) {
+            template = configuration.docIndex.getShapeTemplate(classDoc);
+        }
+        ShapeProgram program = ShapeProgram.compile(template);
+        if (program.errorIndex >= 0) {
+            configuration.message.warning(classDoc.position(), "doclet.Shape_template_malformed",
+                name, String.valueOf(program.errorIndex), template);
         }
-        return dfuShapeTemplate;
+        return program;
     }
 
-    private void addCustomShapedType(LinkInfo linkInfo, Content link, String template, Content[] outerParams) {
+    private void addCustomShapedType(LinkInfo linkInfo, Content link, ShapeProgram shape, Content[] outerParams) {
         // all other type shapes
         // e.g. DataResult<_>, Const<C,_>, Functor F, (T) -> R
         // special support for the names "Mu" and "Type"
-        List<TypeShapeToken> tokens = TypeShapeToken.of(template);
+        List<TypeShapeToken> tokens = shape.tokens;
         Type[] params;
         if (linkInfo.type.asParameterizedType() != null) {
             params = linkInfo.type.asParameterizedType().typeArguments();
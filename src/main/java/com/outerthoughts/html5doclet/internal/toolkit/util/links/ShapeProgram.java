@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2021, Thalia Nero
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  This particular file is
+ * designated as subject to the "Classpath" exception as provided in
+ * the LICENSE file that accompanies this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.outerthoughts.html5doclet.internal.toolkit.util.links;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A type shape template compiled into its tokens.  Programs are immutable,
+ * so one program is shared by every link to the class it belongs to.
+ *
+ *  <p><b>This is NOT part of any supported API.
+ *  If you write code that depends on this, you do so at your own risk.
+ *  This code and its internal interfaces are subject to change or
+ *  deletion without notice.</b>
+ */
+public final class ShapeProgram {
+
+    /**
+     * The program of a class without a type shape template.
+     */
+    static final ShapeProgram NONE = new ShapeProgram(null, Collections.<TypeShapeToken>emptyList(), -1);
+
+    final String template;
+
+    final List<TypeShapeToken> tokens;
+
+    /**
+     * The index of the first malformed directive in the template, or -1.
+     */
+    final int errorIndex;
+
+    ShapeProgram(String template, List<TypeShapeToken> tokens, int errorIndex) {
+        this.template = template;
+        this.tokens = tokens;
+        this.errorIndex = errorIndex;
+    }
+
+    /**
+     * Compile the given template.
+     *
+     * @param template the template, or null for a class without one.
+     */
+    static ShapeProgram compile(String template) {
+        if (template == null) {
+            return NONE;
+        }
+        return TypeShapeToken.compile(template);
+    }
+
+    /**
+     * Return true if the class has a type shape template.
+     */
+    boolean isPresent() {
+        return template != null;
+    }
+}
@@ -37,17 +37,25 @@ abstract class TypeShapeToken {
 
     abstract Content getContent(LinkFactory factory, LinkInfo linkInfo, Content[] outerParams, Type[] params);
 
-    public static List<TypeShapeToken> of(String template) {
+    /**
+     * Compile a template into its tokens.  Malformed directives are skipped
+     * and the index of the first one is recorded in the program.
+     */
+    static ShapeProgram compile(String template) {
+        String source = template;
         if (template.isEmpty() || template.equals("\"\"")) {
-            return Collections.emptyList();
+            return new ShapeProgram(source, Collections.<TypeShapeToken>emptyList(), -1);
         }
         // turns [ ] into generic brackets < >
-        template = template.replaceAll("\\[", "<").replaceAll("]", ">");
+        template = template.replace('[', '<').replace(']', '>');
         // get rid of quoted templates
+        int offset = 0;
         if (template.charAt(0) == '\"' && template.charAt(template.length() - 1) == '\"') {
             template = template.substring(1, template.length() - 1);
+            offset = 1;
         }
         List<TypeShapeToken> tokens = new ArrayList<>();
+        int[] errorIndex = { -1 };
         int len = template.length();
         int bgn = 0;
         int end = 0;
@@ -64,7 +72,7 @@ abstract class TypeShapeToken {
             assert template.charAt(end) == '%';
             end++;
             if (end < len) {
-                end = parseNextToken(template, tokens, len, end);
+                end = parseNextToken(template, tokens, len, end, errorIndex);
                 bgn = end;
                 // get as large of a literal as possible
                 while (end < len && template.charAt(end) != '%') {
@@ -74,12 +82,38 @@ abstract class TypeShapeToken {
                 if (bgn != end) {
                     tokens.add(new LiteralToken(template.substring(bgn, end)));
                 }
+            } else {
+                recordError(errorIndex, end - 1);
             }
         }
-        return tokens;
+        return new ShapeProgram(source, Collections.unmodifiableList(tokens),
+            errorIndex[0] < 0 ? -1 : errorIndex[0] + offset);
     }
 
-    private static int parseNextToken(String template, List<TypeShapeToken> tokens, int len, int end) {
+    private static void recordError(int[] errorIndex, int index) {
+        if (errorIndex[0] < 0) {
+            errorIndex[0] = index;
+        }
+    }
+
+    /**
+     * Parse the directive starting at the given index.  A directive that
+     * yields no token or is not terminated is recorded as malformed.  An
+     * empty quoted literal yields no token but is well formed.
+     */
+    private static int parseNextToken(String template, List<TypeShapeToken> tokens, int len, int end,
+            int[] errorIndex) {
+        int start = end;
+        int count = tokens.size();
+        end = parseDirective(template, tokens, len, end, errorIndex);
+        if (end > len || (tokens.size() == count && template.charAt(start) != '\'')) {
+            recordError(errorIndex, start);
+        }
+        return end;
+    }
+
+    private static int parseDirective(String template, List<TypeShapeToken> tokens, int len, int end,
+            int[] errorIndex) {
         int bgn;
         if (template.charAt(end) == '.') { // class link
             bgn = end + 1;
@@ -116,12 +150,12 @@ abstract class TypeShapeToken {
                     bgn = end;
                     // add the next token (possible recursive)
                     if (end < len) {
-                        end = parseNextToken(template, subTokens, len, end);
+                        end = parseNextToken(template, subTokens, len, end, errorIndex);
                     }
                 } while (end < len && template.charAt(end) != ')');
                 if (bgn != end) {
                     // a123,213; -> 123,213
-                    tokens.add(new TypeArgumentApplicationToken(subTokens));
+                    tokens.add(new TypeArgumentApplicationToken(Collections.unmodifiableList(subTokens)));
                     end++;
                 }
             }
@@ -28,3 +28,133 @@ function updateTabs(type)
         }
     }
 }
+
+var searchIndex = null;
+var searchRequested = false;
+var searchLimit = 50;
+
+function searchIndexLoaded(index)
+{
+    var heads = [];
+    for (var i = 0; i < index.names.length; i += index.blockSize)
+        heads.push(index.names[i].toLowerCase());
+    index.heads = heads;
+    searchIndex = index;
+    var input = document.getElementById("search");
+    if (input != null)
+        search(input);
+}
+
+function searchRoot()
+{
+    var scripts = document.getElementsByTagName("script");
+    for (var i = 0; i < scripts.length; i++) {
+        var src = scripts[i].getAttribute("src");
+        if (src != null && src.substring(src.length - 9) == "script.js")
+            return src.substring(0, src.length - 9);
+    }
+    return "";
+}
+
+function search(input)
+{
+    if (searchIndex == null) {
+        if (!searchRequested) {
+            searchRequested = true;
+            var script = document.createElement("script");
+            script.type = "text/javascript";
+            script.src = searchRoot() + "search-index.js";
+            document.getElementsByTagName("head")[0].appendChild(script);
+        }
+        return;
+    }
+    var results = document.getElementById("searchResults");
+    if (results == null) {
+        results = document.createElement("ul");
+        results.id = "searchResults";
+        results.className = "searchResults";
+        document.body.appendChild(results);
+    }
+    while (results.firstChild)
+        results.removeChild(results.firstChild);
+    var query = input.value.toLowerCase();
+    var matches = query.length == 0 ? [] : searchPrefix(query);
+    if (matches.length == 0) {
+        results.style.display = "none";
+        return;
+    }
+    var root = searchRoot();
+    for (var i = 0; i < matches.length; i++) {
+        var item = searchItem(matches[i].index, matches[i].name);
+        var link = document.createElement("a");
+        link.href = root + item.url;
+        link.appendChild(document.createTextNode(item.label));
+        var li = document.createElement("li");
+        li.appendChild(link);
+        if (item.qualifier.length > 0) {
+            var span = document.createElement("span");
+            span.appendChild(document.createTextNode(item.qualifier));
+            li.appendChild(span);
+        }
+        results.appendChild(li);
+    }
+    var box = input.getBoundingClientRect();
+    var scrollTop = window.pageYOffset || document.documentElement.scrollTop;
+    var scrollLeft = window.pageXOffset || document.documentElement.scrollLeft;
+    results.style.top = (box.bottom + scrollTop) + "px";
+    results.style.left = (box.left + scrollLeft) + "px";
+    results.style.display = "block";
+}
+
+function searchPrefix(query)
+{
+    var index = searchIndex;
+    var heads = index.heads;
+    // find the last block that starts before the query
+    var lo = 0, hi = heads.length;
+    while (lo < hi) {
+        var mid = (lo + hi) >> 1;
+        if (heads[mid] < query)
+            lo = mid + 1;
+        else
+            hi = mid;
+    }
+    var matches = [];
+    var name = "";
+    for (var i = Math.max(lo - 1, 0) * index.blockSize;
+            i < index.names.length && matches.length < searchLimit; i++) {
+        name = name.substring(0, index.prefixes[i]) + index.names[i];
+        var key = name.toLowerCase();
+        if (key.substring(0, query.length) == query)
+            matches.push({index: i, name: name});
+        else if (key > query)
+            break;
+    }
+    return matches;
+}
+
+function searchItem(i, name)
+{
+    var index = searchIndex;
+    var target = index.targets[i];
+    if (target[0] == 0)
+        return {label: name, qualifier: "",
+                url: searchPackagePath(target[1]) + "package-summary.html"};
+    var type = index.types[target[1]];
+    var typeUrl = searchPackagePath(type[0]) + type[1] + ".html";
+    var packageName = index.packages[type[0]];
+    if (target[0] == 1)
+        return {label: name, qualifier: packageName, url: typeUrl};
+    var qualifier = (packageName.length > 0 ? packageName + "." : "") + type[1];
+    if (target[0] == 2)
+        return {label: name, qualifier: qualifier,
+                url: typeUrl + "#" + (target.length > 2 ? target[2] : name)};
+    return {label: name + target[2], qualifier: qualifier,
+            url: typeUrl + "#" + target[3]};
+}
+
+function searchPackagePath(p)
+{
+    var name = searchIndex.packages[p];
+    return name.length == 0 ? "" : name.replace(/\./g, "/") + "/";
+}